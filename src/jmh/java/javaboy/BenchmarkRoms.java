@@ -0,0 +1,72 @@
+package javaboy;
+
+import javaboy.rom.RomImage;
+
+/**
+ * ROM images for benchmarks, and the unit tests that check what they measure
+ */
+public class BenchmarkRoms {
+
+    /**
+     * A loop of arithmetic, loads and stores, high RAM, stack, call and CB-prefixed instructions
+     */
+    private static final int[] INSTRUCTION_MIX = {
+            0x31, 0xF0, 0xDF,   // 0x0100: LD SP, 0xDFF0
+            0x21, 0x00, 0xC0,   // 0x0103: LD HL, 0xC000
+            0x7E,               // 0x0106: LD A, (HL)
+            0x80,               // 0x0107: ADD A, B
+            0xCE, 0x12,         // 0x0108: ADC A, 0x12
+            0x91,               // 0x010A: SUB C
+            0x9A,               // 0x010B: SBC A, D
+            0x27,               // 0x010C: DAA
+            0xE6, 0x7F,         // 0x010D: AND 0x7F
+            0xAB,               // 0x010F: XOR E
+            0xB5,               // 0x0110: OR L
+            0xFE, 0x40,         // 0x0111: CP 0x40
+            0x04,               // 0x0113: INC B
+            0x0D,               // 0x0114: DEC C
+            0x77,               // 0x0115: LD (HL), A
+            0x2C,               // 0x0116: INC L
+            0xE0, 0x80,         // 0x0117: LDH (0x80), A
+            0xF0, 0x81,         // 0x0119: LDH A, (0x81)
+            0xE5,               // 0x011B: PUSH HL
+            0xC5,               // 0x011C: PUSH BC
+            0xD1,               // 0x011D: POP DE
+            0xE1,               // 0x011E: POP HL
+            0xCB, 0x37,         // 0x011F: SWAP A
+            0xCB, 0x16,         // 0x0121: RL (HL)
+            0xCB, 0x58,         // 0x0123: BIT 3, B
+            0xCB, 0xC9,         // 0x0125: SET 1, C
+            0xCD, 0x2C, 0x01,   // 0x0127: CALL 0x012C
+            0x18, 0xDA,         // 0x012A: JR 0x0106
+            0x17,               // 0x012C: RLA
+            0xC9                // 0x012D: RET
+    };
+
+    private BenchmarkRoms() {
+    }
+
+    public static int[] instructionMix() {
+        return INSTRUCTION_MIX.clone();
+    }
+
+    /**
+     * The bytes of an otherwise empty 32Kb ROM holding the program at the entry point
+     */
+    public static byte[] image(int... program) {
+        byte[] image = new byte[0x8000];
+        for (int i = 0; i < program.length; i++) {
+            image[0x0100 + i] = (byte) program[i];
+        }
+        return image;
+    }
+
+    /**
+     * A CPU reset to run the program from an otherwise empty 32Kb ROM
+     */
+    public static Cpu cpu(int... program) {
+        Cpu cpu = new Cpu(new RomImage(image(program)));
+        cpu.reset();
+        return cpu;
+    }
+}
@@ -0,0 +1,56 @@
+package javaboy;
+
+import javaboy.rom.loader.RomLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CPU on its own and the system as a whole.  {@link #aluMix()} executes one
+ * instruction of a tight loop of arithmetic and logic instructions, so its score reads as
+ * instructions per second.  {@link #frame()} runs bgblogo.gb for one frame's worth of clock
+ * cycles, including the graphics and timers, so its score reads as frames per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CpuBenchmark {
+
+    private static final int CYCLES_PER_FRAME = GraphicsConstants.CYCLES_PER_LINE * GraphicsConstants.LINES_PER_FRAME;
+
+    /**
+     * ADD, SUB, AND, OR, XOR, CP, INC, DEC, ADC, SBC, RLCA and SWAP A, then a jump back
+     */
+    private static final int[] ALU_LOOP = {
+            0x80, 0x91, 0xA2, 0xB3, 0xAC, 0xBD, 0x3C, 0x05, 0x89, 0x9A, 0x07, 0xCB, 0x37, 0x18, 0xF1
+    };
+
+    private Cpu aluCpu;
+    private Cpu systemCpu;
+
+    @Setup
+    public void setup() {
+        aluCpu = BenchmarkRoms.cpu(ALU_LOOP);
+
+        systemCpu = new Cpu(RomLoader.loadRom("bgblogo.gb"));
+        systemCpu.reset();
+    }
+
+    @Benchmark
+    public int aluMix() {
+        return aluCpu.step();
+    }
+
+    @Benchmark
+    public long frame() {
+        long end = systemCpu.getCycleCount() + CYCLES_PER_FRAME;
+        while (systemCpu.getCycleCount() < end) {
+            systemCpu.step();
+        }
+        return systemCpu.getCycleCount();
+    }
+
+}
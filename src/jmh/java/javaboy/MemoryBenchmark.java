@@ -0,0 +1,68 @@
+package javaboy;
+
+import javaboy.memory.MemoryBankController;
+import javaboy.memory.MemoryController;
+import javaboy.rom.RomImage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures single byte reads and writes through the memory controller for each region of the
+ * address space.  Each operation walks to the next address of a 64 byte window in the region,
+ * small enough that the high RAM window stays clear of IE at 0xFFFF.  Writes to the ROM region
+ * are writes to the bank controller's registers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryBenchmark {
+
+    public enum Region {
+        ROM(0x4000), VIDEO_RAM(0x8000), CARTRIDGE_RAM(0xA000), WORKING_RAM(0xC000), OAM(0xFE00), HIGH_RAM(0xFF80);
+
+        private final int address;
+
+        Region(int address) {
+            this.address = address;
+        }
+    }
+
+    @Param
+    public Region region;
+
+    private MemoryController memory;
+    private int position;
+
+    @Setup
+    public void setup() {
+        byte[] image = BenchmarkRoms.image();
+        image[0x0147] = 0x03;   // MBC1 with battery backed RAM
+        image[0x0149] = 0x02;
+
+        RomImage rom = new RomImage(image);
+        Cpu cpu = new Cpu(rom);
+        memory = new MemoryController(cpu.graphicsChip, cpu.ioHandler, MemoryBankController.create(rom));
+        memory.writeByte(0x0000, 0x0A);   // Enable cartridge RAM
+    }
+
+    private int nextAddress() {
+        position = (position + 1) & 0x3F;
+        return region.address + position;
+    }
+
+    @Benchmark
+    public int read() {
+        return memory.readByte(nextAddress());
+    }
+
+    @Benchmark
+    public void write() {
+        int address = nextAddress();
+        memory.writeByte(address, address);
+    }
+
+}
@@ -0,0 +1,60 @@
+package javaboy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the CPU over {@link BenchmarkRoms#instructionMix()}.  {@link #step()} decodes and dispatches one instruction
+ * through the opcode handler table, so its score reads as instructions per second.
+ * {@link #runCycles(Instructions)} runs a line's worth of clock cycles through the block cache
+ * and compiled blocks, as a game runs, and reports the instructions executed per second as the
+ * instructions counter.  Decoding through the opcode tables is measured on its own by
+ * {@link javaboy.instruction.OpcodeDecodeBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpcodeDispatchBenchmark {
+
+    private Cpu steppedCpu;
+    private Cpu runCpu;
+
+    /**
+     * Instructions executed by {@link #runCycles(Instructions)}, reported per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Instructions {
+
+        public long instructions;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            instructions = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        steppedCpu = BenchmarkRoms.cpu(BenchmarkRoms.instructionMix());
+        runCpu = BenchmarkRoms.cpu(BenchmarkRoms.instructionMix());
+    }
+
+    @Benchmark
+    public int step() {
+        return steppedCpu.step();
+    }
+
+    @Benchmark
+    public long runCycles(Instructions counter) {
+        long start = runCpu.getInstructionCount();
+        runCpu.runCycles(GraphicsConstants.CYCLES_PER_LINE);
+        counter.instructions += runCpu.getInstructionCount() - start;
+        return runCpu.getCycleCount();
+    }
+
+}
@@ -0,0 +1,57 @@
+package javaboy.graphics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding tile data as it is written to video RAM, and drawing a whole frame of
+ * background, window and sprites from random video RAM and OAM contents.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphicsBenchmark {
+
+    private final GraphicsChip graphicsChip = new GraphicsChip(null);
+
+    private int tileAddress;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0x5EED);
+        for (int address = 0; address < 0x2000; address++) {
+            graphicsChip.addressWrite(address, (byte) random.nextInt(0x100));
+        }
+        random.nextBytes(graphicsChip.getOam());
+
+        graphicsChip.backgroundPalette.decodePalette(0xE4);
+        graphicsChip.obj1Palette.decodePalette(0xE4);
+        graphicsChip.obj2Palette.decodePalette(0x1B);
+        graphicsChip.windowX = 7 + 80;
+        graphicsChip.windowY = 72;
+    }
+
+    @Benchmark
+    public void tileUpdate() {
+        tileAddress = (tileAddress + 1) % 0x1800;
+        graphicsChip.addressWrite(tileAddress, (byte) tileAddress);
+    }
+
+    @Benchmark
+    public boolean renderFrame() {
+        // Every other frame is skipped, so draw two to render one
+        for (int frame = 0; frame < 2; frame++) {
+            for (int line = 0; line < GraphicsChip.HEIGHT; line++) {
+                graphicsChip.notifyScanline(line);
+            }
+            graphicsChip.finishFrame(null);
+        }
+        return graphicsChip.getDirtyRegion().isEmpty();
+    }
+
+}
@@ -0,0 +1,56 @@
+package javaboy.instruction;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding opcode values through the opcode tables.  The CPU dispatches straight from
+ * the opcode value to its handler, so decoding no longer sits on its path; this covers the
+ * {@link Instruction#from(int, boolean)} lookups used everywhere else.  Each operation decodes
+ * one opcode from a fixed random stream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpcodeDecodeBenchmark {
+
+    private static final int STREAM_LENGTH = 0x1000;
+
+    private final int[] opcodes = new int[STREAM_LENGTH];
+
+    private int position;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0x5EED);
+        for (int i = 0; i < STREAM_LENGTH; i++) {
+            opcodes[i] = random.nextInt(0x100);
+        }
+    }
+
+    private int nextOpcode() {
+        position = (position + 1) & (STREAM_LENGTH - 1);
+        return opcodes[position];
+    }
+
+    @Benchmark
+    public int tableDecode() {
+        return BaseOpcode.from(nextOpcode()).intValue();
+    }
+
+    @Benchmark
+    public int instructionDecode() {
+        return Instruction.from(nextOpcode(), false).intValue();
+    }
+
+    @Benchmark
+    public int extendedInstructionDecode() {
+        return Instruction.from(nextOpcode(), true).intValue();
+    }
+
+}
@@ -0,0 +1,60 @@
+package javaboy;
+
+import javaboy.instruction.OpcodeHandler;
+
+/**
+ * A straight run of instructions decoded once from the memory mapped at its start address.  Each
+ * instruction is held as its handler, its immediate operand, its base cycle cost and the address
+ * of the instruction after it.  A block lies within one page and ends at the first branch.
+ */
+final class BasicBlock {
+
+    final int start;
+
+    /**
+     * The page array and offset the block was decoded from, so that it is only used while the
+     * same memory bank is mapped at its address
+     */
+    final byte[] memory;
+    final int offset;
+
+    final int length;
+    final OpcodeHandler[] handlers;
+    final int[] immediates;
+    final int[] cycles;
+    final int[] next;
+
+    /**
+     * Set once memory the block was decoded from has been written
+     */
+    boolean invalid;
+
+    /**
+     * The IO register the block polls when it is a polling loop, otherwise 0.  A polling loop reads
+     * LY or STAT into A, tests A and branches back to its start, changing nothing but A and F, so
+     * every iteration that reads the same value does the same thing.
+     */
+    int polledRegister;
+
+    /**
+     * Times the block has been entered while interpreted, and its compiled form once it is hot
+     */
+    int executions;
+    CompiledBlock compiled;
+
+    /**
+     * The next block decoded at the same address from another memory bank
+     */
+    BasicBlock chain;
+
+    BasicBlock(int start, byte[] memory, int offset, int length, OpcodeHandler[] handlers, int[] immediates, int[] cycles, int[] next) {
+        this.start = start;
+        this.memory = memory;
+        this.offset = offset;
+        this.length = length;
+        this.handlers = handlers;
+        this.immediates = immediates;
+        this.cycles = cycles;
+        this.next = next;
+    }
+}
@@ -0,0 +1,188 @@
+package javaboy;
+
+import javaboy.instruction.BaseOpcode;
+import javaboy.instruction.Cycles;
+import javaboy.instruction.OpcodeHandler;
+import javaboy.instruction.Operands;
+import javaboy.memory.MemoryController;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static javaboy.instruction.BaseOpcode.*;
+
+/**
+ * Basic blocks by start address.  Blocks are decoded from ROM, where the bytes never change, and
+ * from RAM that is written straight into an array.  Pages holding RAM blocks are watched, and the
+ * first write to any of them drops every RAM block.  A RAM page that keeps being written to while
+ * it holds code stops being cached, and runs through the interpreter instead.
+ */
+class BlockCache {
+
+    private static final int MAX_INSTRUCTIONS = 32;
+
+    /**
+     * Writes to a RAM page holding blocks after which its code is no longer cached
+     */
+    private static final int MAX_INVALIDATIONS = 16;
+
+    private static final boolean[] ENDS_BLOCK = new boolean[0x100];
+
+    static {
+        for (BaseOpcode opcode : new BaseOpcode[]{
+                JR_n, JR_NZ_n, JR_Z_n, JR_NC_n, JR_C_n,
+                JP_nn, JP_NZ_nn, JP_Z_nn, JP_NC_nn, JP_C_nn, JP_HL,
+                CALL_nn, CALL_NZ_nn, CALL_Z_nn, CALL_NC_nn, CALL_C_nn,
+                RET, RET_NZ, RET_Z, RET_NC, RET_C, RETI,
+                RST_00, RST_08, RST_10, RST_18, RST_20, RST_28, RST_30, RST_38,
+                HALT, STOP}) {
+            ENDS_BLOCK[opcode.intValue()] = true;
+        }
+    }
+
+    private final MemoryController memoryController;
+    private final OpcodeHandler[] handlers;
+
+    private final BasicBlock[] blocks = new BasicBlock[0x10000];
+    private final List<BasicBlock> ramBlocks = new ArrayList<>();
+    private final int[] invalidations = new int[0x100];
+
+    BlockCache(MemoryController memoryController, OpcodeHandler[] handlers) {
+        this.memoryController = memoryController;
+        this.handlers = handlers;
+
+        memoryController.setWriteWatcher(this::ramWritten);
+    }
+
+    /**
+     * The block starting at an address for the memory mapped there now, decoding it if needed.
+     * Null where code cannot be cached.
+     */
+    BasicBlock get(int address) {
+        byte[] memory = memoryController.readPage(address);
+        if (memory == null) {
+            return null;
+        }
+
+        int offset = memoryController.readOffset(address);
+        for (BasicBlock block = blocks[address]; block != null; block = block.chain) {
+            if (block.memory == memory && block.offset == offset) {
+                return block;
+            }
+        }
+
+        return decode(address, memory, offset);
+    }
+
+    private BasicBlock decode(int start, byte[] memory, int offset) {
+        boolean ram = start >= 0x8000;
+        if (ram && (!memoryController.isWritable(start) || invalidations[start >>> 8] >= MAX_INVALIDATIONS)) {
+            return null;
+        }
+
+        int[] opcodes = new int[MAX_INSTRUCTIONS];
+        OpcodeHandler[] blockHandlers = new OpcodeHandler[MAX_INSTRUCTIONS];
+        int[] immediates = new int[MAX_INSTRUCTIONS];
+        int[] cycles = new int[MAX_INSTRUCTIONS];
+        int[] next = new int[MAX_INSTRUCTIONS];
+
+        int pageEnd = (start & 0xFF00) + 0x100;
+        int address = start;
+        int length = 0;
+
+        while (length < MAX_INSTRUCTIONS) {
+            int opcode = memory[offset + (address & 0xFF)] & 0xFF;
+            int operandLength = Operands.base(opcode);
+
+            // An instruction running into the next page is left to the interpreter
+            if (address + operandLength >= pageEnd) {
+                break;
+            }
+
+            int immediate = 0;
+            for (int i = operandLength; i > 0; i--) {
+                immediate = (immediate << 8) | (memory[offset + ((address + i) & 0xFF)] & 0xFF);
+            }
+
+            opcodes[length] = opcode;
+            blockHandlers[length] = handlers[opcode];
+            immediates[length] = immediate;
+            cycles[length] = Cycles.base(opcode);
+            next[length] = address + 1 + operandLength;
+            length++;
+
+            address += 1 + operandLength;
+            if (ENDS_BLOCK[opcode]) {
+                break;
+            }
+        }
+
+        if (length == 0) {
+            return null;
+        }
+
+        BasicBlock block = new BasicBlock(start, memory, offset, length,
+                Arrays.copyOf(blockHandlers, length), Arrays.copyOf(immediates, length),
+                Arrays.copyOf(cycles, length), Arrays.copyOf(next, length));
+        block.polledRegister = polledRegister(start, length, opcodes, immediates, next);
+        block.chain = blocks[start];
+        blocks[start] = block;
+
+        if (ram) {
+            memoryController.watchWrites(start);
+            ramBlocks.add(block);
+        }
+
+        return block;
+    }
+
+    /**
+     * The register polled by a block that is a loop reading LY or STAT into A, testing A with CP
+     * n, AND n, CP r or BIT b, A and branching back to its start, otherwise 0
+     */
+    private static int polledRegister(int start, int length, int[] opcodes, int[] immediates, int[] next) {
+        if (length < 2 || opcodes[0] != LDH_A_ini.intValue()
+                || (immediates[0] != (LcdController.LY_ADDRESS & 0xFF) && immediates[0] != (LcdController.STAT_ADDRESS & 0xFF))) {
+            return 0;
+        }
+
+        for (int i = 1; i < length - 1; i++) {
+            int opcode = opcodes[i];
+            boolean testsA = opcode == CP_n.intValue() || opcode == AND_n.intValue()
+                    || (opcode >= CP_B.intValue() && opcode <= CP_L.intValue())
+                    || (opcode == PREFIX_CB.intValue() && (immediates[i] & 0xC7) == 0x47);
+
+            if (!testsA) {
+                return 0;
+            }
+        }
+
+        int branch = opcodes[length - 1];
+        int target;
+        if (branch == JR_NZ_n.intValue() || branch == JR_Z_n.intValue() || branch == JR_NC_n.intValue() || branch == JR_C_n.intValue()) {
+            target = (next[length - 1] + (byte) immediates[length - 1]) & 0xFFFF;
+        } else if (branch == JP_NZ_nn.intValue() || branch == JP_Z_nn.intValue() || branch == JP_NC_nn.intValue() || branch == JP_C_nn.intValue()) {
+            target = immediates[length - 1];
+        } else {
+            return 0;
+        }
+
+        return target == start ? 0xFF00 | immediates[0] : 0;
+    }
+
+    /**
+     * Drops every RAM block once a watched page has been written
+     */
+    private void ramWritten(int address) {
+        invalidations[address >>> 8]++;
+
+        // Every block at a RAM address is a RAM block, so whole chains go
+        for (BasicBlock block : ramBlocks) {
+            block.invalid = true;
+            blocks[block.start] = null;
+        }
+
+        ramBlocks.clear();
+    }
+}
@@ -0,0 +1,267 @@
+package javaboy;
+
+import javaboy.instruction.OpcodeHandler;
+import org.pmw.tinylog.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compiles hot basic blocks into hidden classes implementing {@link CompiledBlock}.  For each
+ * instruction the generated code makes the same calls the CPU makes for an interpreted block,
+ * {@link Cpu#startInstruction}, the handler and {@link Cpu#finishInstruction}, unrolled and with
+ * constant arguments.  Because every block has its own class, each handler call site only ever
+ * sees one handler, and HotSpot inlines the handler together with the register and flag
+ * operations it makes.
+ *
+ * The class file is written directly, with no bytecode library.  It uses class file version 49,
+ * whose verifier does not need stack map frames, so the one branch per instruction needs no
+ * frame computation.
+ */
+class BlockCompiler {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final int CLASS_VERSION = 49;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LLOAD_3 = 0x21;
+    private static final int ALOAD_0 = 0x2A;
+    private static final int ALOAD_1 = 0x2B;
+    private static final int ALOAD_2 = 0x2C;
+    private static final int AALOAD = 0x32;
+    private static final int POP = 0x57;
+    private static final int IFNE = 0x9A;
+    private static final int RETURN = 0xB1;
+    private static final int INVOKEVIRTUAL = 0xB6;
+    private static final int INVOKESPECIAL = 0xB7;
+    private static final int INVOKEINTERFACE = 0xB9;
+
+    private static final String CPU = "javaboy/Cpu";
+    private static final String HANDLER = "javaboy/instruction/OpcodeHandler";
+
+    private BlockCompiler() {
+    }
+
+    /**
+     * Compiles a block, or returns null if the generated class could not be loaded
+     */
+    static CompiledBlock compile(BasicBlock block) {
+        try {
+            Class<?> compiled = LOOKUP.defineHiddenClass(classFile(block), true).lookupClass();
+            return (CompiledBlock) LOOKUP.findConstructor(compiled, MethodType.methodType(void.class)).invoke();
+        } catch (Throwable throwable) {
+            Logger.debug("Cannot compile block at " + String.format("%04X", block.start) + ": " + throwable);
+            return null;
+        }
+    }
+
+    private static byte[] classFile(BasicBlock block) {
+        ConstantPool pool = new ConstantPool();
+        int thisClass = pool.classRef("javaboy/CompiledBlock$" + String.format("%04X", block.start));
+        int superClass = pool.classRef("java/lang/Object");
+        int compiledBlock = pool.classRef("javaboy/CompiledBlock");
+        int code = pool.utf8("Code");
+
+        int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V", false);
+        int startInstruction = pool.methodRef(CPU, "startInstruction", "(II)V", false);
+        int finishInstruction = pool.methodRef(CPU, "finishInstruction", "(IJ)Z", false);
+        int execute = pool.methodRef(HANDLER, "execute", "(I)V", true);
+
+        ByteArrayOutputStream constructor = new ByteArrayOutputStream();
+        constructor.write(ALOAD_0);
+        writeOpcode(constructor, INVOKESPECIAL, objectInit);
+        constructor.write(RETURN);
+
+        ByteArrayOutputStream run = new ByteArrayOutputStream();
+        for (int i = 0; i < block.length; i++) {
+            // cpu.startInstruction(next, cycles)
+            run.write(ALOAD_1);
+            pushInt(run, pool, block.next[i]);
+            pushInt(run, pool, block.cycles[i]);
+            writeOpcode(run, INVOKEVIRTUAL, startInstruction);
+
+            // handlers[i].execute(immediate)
+            run.write(ALOAD_2);
+            pushInt(run, pool, i);
+            run.write(AALOAD);
+            pushInt(run, pool, block.immediates[i]);
+            writeOpcode(run, INVOKEINTERFACE, execute);
+            run.write(2);
+            run.write(0);
+
+            // if (!cpu.finishInstruction(next, until)) return
+            run.write(ALOAD_1);
+            pushInt(run, pool, block.next[i]);
+            run.write(LLOAD_3);
+            writeOpcode(run, INVOKEVIRTUAL, finishInstruction);
+            if (i < block.length - 1) {
+                writeOpcode(run, IFNE, 4);
+            } else {
+                run.write(POP);
+            }
+            run.write(RETURN);
+        }
+
+        int init = pool.utf8("<init>");
+        int initType = pool.utf8("()V");
+        int runName = pool.utf8("run");
+        int runType = pool.utf8("(L" + CPU + ";[L" + HANDLER + ";J)V");
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+            pool.write(out);
+
+            out.writeShort(ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(compiledBlock);
+            out.writeShort(0);
+
+            out.writeShort(2);
+            writeMethod(out, init, initType, code, 1, 1, constructor.toByteArray());
+            writeMethod(out, runName, runType, code, 4, 5, run.toByteArray());
+            out.writeShort(0);
+
+            return bytes.toByteArray();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int type, int code, int maxStack, int maxLocals, byte[] bytecode) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(type);
+        out.writeShort(1);
+
+        out.writeShort(code);
+        out.writeInt(12 + bytecode.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(bytecode.length);
+        out.write(bytecode);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private static void writeOpcode(ByteArrayOutputStream out, int opcode, int operand) {
+        out.write(opcode);
+        out.write(operand >> 8);
+        out.write(operand);
+    }
+
+    private static void pushInt(ByteArrayOutputStream out, ConstantPool pool, int value) {
+        if (value >= -1 && value <= 5) {
+            out.write(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            out.write(BIPUSH);
+            out.write(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            writeOpcode(out, SIPUSH, value);
+        } else {
+            writeOpcode(out, LDC_W, pool.integer(value));
+        }
+    }
+
+    /**
+     * The constant pool of the class being written, each entry added once
+     */
+    private static class ConstantPool {
+
+        private static final int UTF8 = 1;
+        private static final int INTEGER = 3;
+        private static final int CLASS = 7;
+        private static final int METHOD = 10;
+        private static final int INTERFACE_METHOD = 11;
+        private static final int NAME_AND_TYPE = 12;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+
+        int utf8(String value) {
+            return add("U" + value, () -> {
+                out.writeByte(UTF8);
+                out.writeUTF(value);
+            });
+        }
+
+        int integer(int value) {
+            return add("I" + value, () -> {
+                out.writeByte(INTEGER);
+                out.writeInt(value);
+            });
+        }
+
+        int classRef(String name) {
+            int nameIndex = utf8(name);
+            return add("C" + name, () -> {
+                out.writeByte(CLASS);
+                out.writeShort(nameIndex);
+            });
+        }
+
+        int methodRef(String owner, String name, String type, boolean isInterface) {
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int typeIndex = utf8(type);
+            int nameAndType = add("N" + name + type, () -> {
+                out.writeByte(NAME_AND_TYPE);
+                out.writeShort(nameIndex);
+                out.writeShort(typeIndex);
+            });
+
+            return add("M" + owner + "." + name + type, () -> {
+                out.writeByte(isInterface ? INTERFACE_METHOD : METHOD);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        void write(DataOutputStream classFile) throws IOException {
+            classFile.writeShort(entries.size() + 1);
+            classFile.write(bytes.toByteArray());
+        }
+
+        private int add(String key, Entry entry) {
+            Integer index = entries.get(key);
+            if (index != null) {
+                return index;
+            }
+
+            try {
+                entry.write();
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+
+            index = entries.size() + 1;
+            entries.put(key, index);
+            return index;
+        }
+
+        private interface Entry {
+            void write() throws IOException;
+        }
+    }
+}
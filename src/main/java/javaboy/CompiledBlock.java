@@ -0,0 +1,17 @@
+package javaboy;
+
+import javaboy.instruction.OpcodeHandler;
+
+/**
+ * A basic block compiled into a class of its own by {@link BlockCompiler}.  It does what the CPU
+ * does for an interpreted block, with the operands, cycle costs and addresses as constants and
+ * a call site of its own for each handler.
+ */
+interface CompiledBlock {
+
+    /**
+     * Runs the block's instructions until one leaves the block or the cycle count reaches until
+     */
+    void run(Cpu cpu, OpcodeHandler[] handlers, long until);
+
+}
@@ -1,49 +1,120 @@
 package javaboy;
 
+import javaboy.graphics.Display;
 import javaboy.graphics.GraphicsChip;
 import javaboy.instruction.BaseOpcode;
-import javaboy.instruction.ExtendedOpcode;
-import javaboy.instruction.Instruction;
-import javaboy.instruction.Opcode;
-import javaboy.lang.Bit;
+import javaboy.instruction.Cycles;
+import javaboy.instruction.OpcodeHandler;
+import javaboy.instruction.Operands;
 import javaboy.lang.Byte;
-import javaboy.lang.FlagRegister;
 import javaboy.lang.Short;
+import javaboy.memory.MemoryBankController;
 import javaboy.memory.MemoryController;
+import javaboy.rom.RomImage;
+import javaboy.timing.FramePacer;
+import javaboy.timing.Scheduler;
 import org.pmw.tinylog.Logger;
 
-import java.awt.*;
-
-import static javaboy.lang.Bit.ONE;
-import static javaboy.lang.Bit.ZERO;
+import static javaboy.Registers.*;
+import static javaboy.instruction.BaseOpcode.*;
 
 public class Cpu implements ReadableWritable {
 
+    /**
+     * Kept while the CPU exists, so that the image stays cached and shared for as long as its
+     * data is in use
+     */
+    private final RomImage rom;
+
     private final Registers registers;
-    private final InstructionCounter instructionCounter = new InstructionCounter();
+    private final CycleCounter cycleCounter = new CycleCounter();
     private final MemoryController memoryController;
     private final InterruptController interruptController;
-    private boolean prefixCB;
+
+    /**
+     * Handlers indexed by opcode value.  Extended handlers are reached through the CB prefix.
+     */
+    private final OpcodeHandler[] baseOpcodeHandlers = new OpcodeHandler[0x100];
+    private final OpcodeHandler[] extendedOpcodeHandlers = new OpcodeHandler[0x100];
+
+    private final BlockCache blockCache;
+
+    /**
+     * Times a ROM block is interpreted before it is compiled.  Code in RAM can be rewritten, and
+     * is always interpreted.
+     */
+    private static final int COMPILE_THRESHOLD = 1000;
 
     /**
      * Used to implement the IE delay slot
      */
     private int ieDelay = -1;
 
-    boolean timaEnabled = false;
-    int instructionsPerTima = 6000;
+    /**
+     * Clock cycles taken by the instruction being executed, including any taken branch
+     */
+    private int cycles;
+
+    private final Scheduler scheduler = new Scheduler(2);
+
+    private boolean timaEnabled = false;
+    private int cyclesPerTima = Timer.cyclesPerTick(0);
+
+    /**
+     * Cycle counts at which DIV was last reset, TIMA last had timaValue and the current line
+     * started
+     */
+    private long dividerStart;
+    private long timaStart;
+    private int timaValue;
+    private long lineStart;
 
     final GraphicsChip graphicsChip;
+    final JoypadController joypad = new JoypadController();
     public final IoHandler ioHandler;
-    private final Component applet;
 
-    Cpu(Component a) {
+    /**
+     * Frames completed and instructions executed since the CPU was created
+     */
+    private long frameCount;
+    private long instructionCount;
+
+    /**
+     * Program counter values at which a run stops before executing the instruction
+     */
+    private final boolean[] breakpoints = new boolean[0x10000];
+    private int breakpointCount;
+
+    /**
+     * Set from any thread to make the current run return
+     */
+    private volatile boolean stopRequested;
+
+    /**
+     * Set by HALT until an interrupt flag wakes the CPU.  The run loop moves the clock on while
+     * it is set, so a halted CPU still stops at the end of a run.
+     */
+    private boolean halted;
+
+    /**
+     * Receives completed frames, null when running headless
+     */
+    private Display display;
+
+    private FramePacer framePacer = FramePacer.unlimited();
+
+    public Cpu(RomImage rom) {
+        this.rom = rom;
         interruptController = new InterruptController();
         registers = new Registers(this);
-        graphicsChip = new GraphicsChip(a, this);
-        ioHandler = new IoHandler(this, instructionCounter, interruptController);
-        memoryController = new MemoryController(graphicsChip, ioHandler, registers, interruptController);
-        applet = a;
+        graphicsChip = new GraphicsChip(this);
+        ioHandler = new IoHandler(this, interruptController);
+        memoryController = new MemoryController(graphicsChip, ioHandler, MemoryBankController.create(rom));
+        registerBaseOpcodeHandlers();
+        registerExtendedOpcodeHandlers();
+        blockCache = new BlockCache(memoryController, baseOpcodeHandlers);
+        // The line event always has a deadline, so a halted CPU never waits towards Scheduler.NEVER
+        scheduler.schedule(LINE_EVENT, GraphicsConstants.CYCLES_PER_LINE);
     }
 
     @Override
@@ -51,36 +122,56 @@ public class Cpu implements ReadableWritable {
         return memoryController.read(address);
     }
 
-    private void write(Short address, Short data) {
-        write(address, data.getLowerByte());
-        write(new Short(address.intValue() + 1), data.getUpperByte());
-    }
-
     @Override
     public void write(Short address, Byte data) {
         memoryController.write(address, data);
     }
 
     /**
-     * Resets the CPU to it's power on state.  Memory contents are not cleared.
+     * Copies a block of memory, for DMA transfers
      */
-    void reset() {
-        graphicsChip.dispose();
-        ieDelay = -1;
-        prefixCB = false;
+    void copyMemory(int source, int destination, int length) {
+        memoryController.copy(source, destination, length);
+    }
 
-        registers.pc.setValue(0x0100);
-        registers.sp.setValue(0xFFFE);
+    private int readByte(int address) {
+        return memoryController.readByte(address);
+    }
+
+    private void writeByte(int address, int data) {
+        memoryController.writeByte(address, data);
+    }
 
-        registers.f.zf(ONE);
-        registers.f.nf(ZERO);
-        registers.f.hf(ONE);
-        registers.f.cf(ONE);
+    private void writeShort(int address, int data) {
+        writeByte(address, data & 0xFF);
+        writeByte((address + 1) & 0xFFFF, data >> 8);
+    }
+
+    /**
+     * Resets the CPU to it's power on state.  Memory contents are not cleared.
+     */
+    public void reset() {
+        ieDelay = -1;
+        halted = false;
+
+        registers.pc(0x0100);
+        registers.sp(0xFFFE);
+
+        registers.f(ZERO_FLAG | HALF_CARRY_FLAG | CARRY_FLAG);
+
+        registers.a(0x01);
+        registers.bc(0x0013);
+        registers.de(0x00D8);
+        registers.hl(0x014D);
+        cycleCounter.reset();
+        scheduler.clear();
+        dividerStart = 0;
+        timaEnabled = false;
+        timaValue = 0;
+        timaStart = 0;
+        lineStart = 0;
+        scheduler.schedule(LINE_EVENT, GraphicsConstants.CYCLES_PER_LINE);
 
-        registers.a.setValue(0x01);
-        registers.bc.setValue(0x0013);
-        registers.de.setValue(0x00D8);
-        registers.hl.setValue(0x014D);
         Logger.debug("CPU reset");
         ioHandler.reset();
     }
@@ -93,20 +184,16 @@ public class Cpu implements ReadableWritable {
     public static final Short INTERRUPT_FLAGS_ADDRESS = new Short(0xFF0F);
     public static final Short INTERRUPT_ENABLE_ADDRESS = new Short(0xFFFF);
 
-    private Byte interruptFlags() {
-        return read(INTERRUPT_FLAGS_ADDRESS);
+    private int interruptFlags() {
+        return readByte(InterruptController.FLAGS_ADDRESS);
     }
 
-    private Byte interruptEnable() {
-        return read(INTERRUPT_ENABLE_ADDRESS);
-    }
-
-    private boolean didInterruptOccur() {
-        return (interruptFlags().intValue() & interruptEnable().intValue()) != 0;
+    private int interruptEnable() {
+        return readByte(InterruptController.ENABLE_ADDRESS);
     }
 
     private boolean didInterruptOccur(InterruptController.Interrupt interrupt) {
-        return (interruptFlags().intValue() & interruptEnable().intValue() & interrupt.getBitMask()) != 0;
+        return (interruptFlags() & interruptEnable() & interrupt.getBitMask()) != 0;
     }
 
     private void checkInterrupts() {
@@ -114,9 +201,10 @@ public class Cpu implements ReadableWritable {
 
         if (interrupt == null) return;
 
-        pushShort(registers.sp, registers.pc);
+        push(registers.pc());
         interruptController.setInterruptMasterEnable(false);
         attendInterrupt(interrupt, interrupt.getAddress());
+        cycles += Cycles.INTERRUPT;
     }
 
     private InterruptController.Interrupt checkInterrupt() {
@@ -140,1288 +228,1159 @@ public class Cpu implements ReadableWritable {
     }
 
     private void attendInterrupt(InterruptController.Interrupt interrupt, int address) {
-        registers.pc.setValue(address);
-        interruptFlags().setValue(interruptFlags().intValue() - interrupt.getBitMask());
+        registers.pc(address);
+        writeByte(InterruptController.FLAGS_ADDRESS, interruptFlags() - interrupt.getBitMask());
     }
 
     /**
      * Initiate an interrupt of the specified type
      */
     private void triggerInterrupt(int interrupt) {
-        Byte data = ioHandler.read(INTERRUPT_FLAGS_ADDRESS);
-        data.setValue(data.intValue() | interrupt);
+        interruptController.writeByte(InterruptController.FLAGS_ADDRESS, interruptFlags() | interrupt);
     }
 
     /**
-     * Check for interrupts that need to be initiated
+     * Events on the scheduler.  DIV and TIMA are derived from the cycle count when read, so only
+     * the end of each line and TIMA overflows need to interrupt the CPU.
+     */
+    private static final int LINE_EVENT = 0;
+    private static final int TIMA_EVENT = 1;
+
+    /**
+     * Handles all events that are due, initiating the interrupts they raise
      */
     private void initiateInterrupts() {
-        if (timaEnabled && ((instructionCounter.getCount() % instructionsPerTima) == 0)) {
-            if (ioHandler.read(new Short(0xFF05)).intValue() == 0) {
-                ioHandler.write(new Short(0xFF05), ioHandler.read(new Short(0xFF06))); // Set TIMA modulo
-                if ((interruptEnable().intValue() & InterruptController.Interrupt.TIMA.getBitMask()) != 0)
-                    triggerInterrupt(InterruptController.Interrupt.TIMA.getBitMask());
+        int event;
+
+        while ((event = scheduler.due(cycleCounter.getCount())) != -1) {
+            switch (event) {
+                case LINE_EVENT:
+                    lineStart = scheduler.deadline(LINE_EVENT);
+                    scheduler.schedule(LINE_EVENT, lineStart + GraphicsConstants.CYCLES_PER_LINE);
+                    endOfLine();
+                    break;
+                case TIMA_EVENT:
+                    timaOverflow();
+                    break;
             }
-            ioHandler.read(new Short(0xFF05)).inc();
         }
+    }
+
+    /**
+     * DIV counts the cycles since it was last written
+     */
+    int readDivider() {
+        return (int) ((cycleCounter.getCount() - dividerStart) / Divider.CYCLES_PER_DIV) & 0xFF;
+    }
+
+    /**
+     * Restarts the DIV count, which is what writing to DIV does
+     */
+    void resetDivider() {
+        dividerStart = cycleCounter.getCount();
+    }
 
-        short INSTRUCTIONS_PER_DIV = GraphicsConstants.BASE_INSTRUCTIONS_PER_DIV;
-        if ((instructionCounter.getCount() % INSTRUCTIONS_PER_DIV) == 0) {
-            ioHandler.read(new Short(0xFF04)).inc();
+    /**
+     * TIMA counts up from the value it had at timaStart
+     */
+    int readTima() {
+        if (!timaEnabled) {
+            return timaValue;
         }
 
-        if ((instructionCounter.getCount() % GraphicsConstants.INSTRS_PER_HBLANK) == 0) {
+        return timaValue + (int) ((cycleCounter.getCount() - timaStart) / cyclesPerTima);
+    }
 
-            // LCY Coincidence
-            // The +1 is due to the LCY register being just about to be incremented
-            int cline = ioHandler.read(new Short(0xFF44)).intValue() + 1;
-            if (cline == 152) cline = 0;
+    void writeTima(int data) {
+        timaValue = data;
+        timaStart = cycleCounter.getCount();
+        scheduleTima();
+    }
 
-            if (((interruptEnable().intValue() & InterruptController.Interrupt.LCDC.getBitMask()) != 0) &&
-                    ((ioHandler.read(new Short(0xFF41)).intValue() & 64) != 0) &&
-                    (ioHandler.read(new Short(0xFF45)).intValue() == cline) && ((ioHandler.read(new Short(0xFF40)).intValue() & 0x80) != 0) && (cline < 0x90)) {
-                triggerInterrupt(InterruptController.Interrupt.LCDC.getBitMask());
-            }
+    void writeTac(int data) {
+        timaValue = readTima();
+        timaStart = cycleCounter.getCount();
 
-            // Trigger on every line
-            if (((interruptEnable().intValue() & InterruptController.Interrupt.LCDC.getBitMask()) != 0) &&
-                    ((ioHandler.read(new Short(0xFF41)).intValue() & 0x8) != 0) && ((ioHandler.read(new Short(0xFF40)).intValue() & 0x80) != 0) && (cline < 0x90)) {
-                triggerInterrupt(InterruptController.Interrupt.LCDC.getBitMask());
-            }
+        timaEnabled = Timer.enabled(data);
+        cyclesPerTima = Timer.cyclesPerTick(data);
+        scheduleTima();
+    }
 
-            if (ioHandler.read(new Short(0xFF44)).intValue() == 143) {
-                for (int r = GraphicsChip.HEIGHT; r < 170; r++) {
-                    graphicsChip.notifyScanline(r);
-                }
-                if (((ioHandler.read(new Short(0xFF40)).intValue() & 0x80) != 0) && ((interruptEnable().intValue() & InterruptController.Interrupt.VBLANK.getBitMask()) != 0)) {
-                    triggerInterrupt(InterruptController.Interrupt.VBLANK.getBitMask());
-                    if (((ioHandler.read(new Short(0xFF41)).intValue() & 16) != 0) && ((interruptEnable().intValue() & InterruptController.Interrupt.LCDC.getBitMask()) != 0)) {
-                        triggerInterrupt(InterruptController.Interrupt.LCDC.getBitMask());
-                    }
-                }
+    private void scheduleTima() {
+        if (timaEnabled) {
+            scheduler.schedule(TIMA_EVENT, timaStart + (long) (0x100 - timaValue) * cyclesPerTima);
+        } else {
+            scheduler.cancel(TIMA_EVENT);
+        }
+    }
 
-                if (graphicsChip.frameWaitTime >= 0) {
-                    try {
-                        java.lang.Thread.sleep(graphicsChip.frameWaitTime);
-                    } catch (InterruptedException e) {
-                        Logger.debug("Error while thread sleeping.");
-                    }
-                }
-            }
+    private void timaOverflow() {
+        timaValue = ioHandler.registerRead(Timer.TMA_ADDRESS); // Set TIMA modulo
+        timaStart = scheduler.deadline(TIMA_EVENT);
+        scheduleTima();
 
-            graphicsChip.notifyScanline(ioHandler.read(new Short(0xFF44)).intValue());
-            ioHandler.read(new Short(0xFF44)).inc();
+        if ((interruptEnable() & InterruptController.Interrupt.TIMA.getBitMask()) != 0)
+            triggerInterrupt(InterruptController.Interrupt.TIMA.getBitMask());
+    }
 
-            if (ioHandler.read(new Short(0xFF44)).intValue() >= 153) {
-                //     Logger.debug("VBlank");
+    /**
+     * Moves the LCD on to the next line, triggering the LCD interrupts and VBlank
+     */
+    private void endOfLine() {
+        int ly = ioHandler.registerRead(LcdController.LY_ADDRESS);
+        int lcdc = ioHandler.registerRead(LcdController.LCDC_ADDRESS);
+        int stat = ioHandler.registerRead(LcdController.STAT_ADDRESS);
+
+        // LCY Coincidence
+        // The +1 is due to the LCY register being just about to be incremented
+        int cline = ly + 1;
+        if (cline == GraphicsConstants.LINES_PER_FRAME) cline = 0;
+
+        if (((interruptEnable() & InterruptController.Interrupt.LCDC.getBitMask()) != 0) &&
+                ((stat & 64) != 0) &&
+                (ioHandler.registerRead(LcdController.LYC_ADDRESS) == cline) && ((lcdc & 0x80) != 0) && (cline < 0x90)) {
+            triggerInterrupt(InterruptController.Interrupt.LCDC.getBitMask());
+        }
 
-                ioHandler.read(new Short(0xFF44)).setValue(0);
-                graphicsChip.frameDone = false;
-                applet.repaint();
-                try {
-                    while (!graphicsChip.frameDone) {
-                        java.lang.Thread.sleep(1);
-                    }
-                } catch (InterruptedException ignored) {
-                    Logger.debug("Error while sleeping.");
+        // Trigger on every line
+        if (((interruptEnable() & InterruptController.Interrupt.LCDC.getBitMask()) != 0) &&
+                ((stat & 0x8) != 0) && ((lcdc & 0x80) != 0) && (cline < 0x90)) {
+            triggerInterrupt(InterruptController.Interrupt.LCDC.getBitMask());
+        }
+
+        if (ly == 143) {
+            if (((lcdc & 0x80) != 0) && ((interruptEnable() & InterruptController.Interrupt.VBLANK.getBitMask()) != 0)) {
+                triggerInterrupt(InterruptController.Interrupt.VBLANK.getBitMask());
+                if (((stat & 16) != 0) && ((interruptEnable() & InterruptController.Interrupt.LCDC.getBitMask()) != 0)) {
+                    triggerInterrupt(InterruptController.Interrupt.LCDC.getBitMask());
                 }
             }
         }
+
+        graphicsChip.notifyScanline(ly);
+        ly++;
+
+        if (ly >= GraphicsConstants.LINES_PER_FRAME) {
+            //     Logger.debug("VBlank");
+
+            ly = 0;
+            frameCount++;
+            graphicsChip.finishFrame(display);
+            framePacer.frameCompleted();
+        }
+
+        ioHandler.registerWrite(LcdController.LY_ADDRESS, ly);
     }
 
-    private void executeBaseOpcode(BaseOpcode opcode) {
-        final FlagRegister newf = new FlagRegister();
+    /**
+     * Clock cycles into the current line, for the STAT mode
+     */
+    int getLineCycles() {
+        return (int) (cycleCounter.getCount() - lineStart);
+    }
 
-        switch (opcode) {
+    /**
+     * The ROM image the CPU was created with
+     */
+    public RomImage getRom() {
+        return rom;
+    }
 
-            case NOP:
-                break;
+    /**
+     * Total clock cycles executed
+     */
+    public long getCycleCount() {
+        return cycleCounter.getCount();
+    }
 
-            case LD_BC_nn: {
-                Short data = loadImmediateShort(registers.pc);
-                load(registers.bc, data);
-                break;
-            }
+    /**
+     * Frames completed, counted at the end of the last line of each frame
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
 
-            case LD_iBCi_A:
-                write(registers.bc, registers.a);
-                break;
+    /**
+     * Instructions executed, not counting interrupt dispatches
+     */
+    public long getInstructionCount() {
+        return instructionCount;
+    }
 
-            case INC_BC:
-                registers.bc.inc();
-                break;
+    /**
+     * Sets the joypad keys held down, a mask of {@link JoypadController.Button} bits.  Pressing a
+     * key raises the joypad interrupt if the program is reading it.
+     */
+    public void setButtons(int buttons) {
+        if (joypad.setPressed(buttons) && ((interruptEnable() & InterruptController.Interrupt.JOYPAD.getBitMask()) != 0)) {
+            triggerInterrupt(InterruptController.Interrupt.JOYPAD.getBitMask());
+        }
+    }
 
-            case INC_B:
-                inc(registers.b);
-                break;
+    /**
+     * Attaches a display to receive completed frames, or detaches it when null
+     */
+    public void setDisplay(Display display) {
+        this.display = display;
+    }
 
-            case DEC_B:
-                dec(registers.b);
-                break;
+    /**
+     * Sets how emulation is paced against real time.  Unlimited by default.
+     */
+    public void setFramePacer(FramePacer framePacer) {
+        this.framePacer = framePacer;
+        framePacer.reset();
+    }
 
-            case LD_B_n: {
-                Byte data = loadImmediateByte(registers.pc);
-                load(registers.b, data);
-                break;
-            }
+    /**
+     * The frame buffer the graphics chip renders into
+     */
+    public int[] getFrameBuffer() {
+        return graphicsChip.getFrameBuffer();
+    }
 
-            case RLCA:
-                rlca(registers.a);
-                break;
+    private void on(BaseOpcode opcode, OpcodeHandler handler) {
+        baseOpcodeHandlers[opcode.intValue()] = handler;
+    }
 
-            case LD_inni_SP: {
-                Short address = loadImmediateShort(registers.pc);
-                write(address, registers.sp);
-                break;
-            }
+    private void registerBaseOpcodeHandlers() {
+        // LD r, r'
+        for (int opcode = 0x40; opcode < 0x80; opcode++) {
+            int destination = (opcode & 0x38) >> 3;
+            int source = opcode & 0x07;
+            baseOpcodeHandlers[opcode] = immediate -> writeOperand(destination, readOperand(source));
+        }
 
-            case ADD_HL_BC: {
-                add(registers.hl, registers.bc);
-                break;
-            }
+        // ALU A, r
+        for (int opcode = 0x80; opcode < 0xC0; opcode++) {
+            baseOpcodeHandlers[opcode] = aluHandler((opcode & 0x38) >> 3, opcode & 0x07);
+        }
 
-            case LD_A_iBCi: {
-                Byte data = read(registers.bc);
-                registers.a.setValue(data);
-                break;
-            }
+        on(NOP, immediate -> {
+        });
 
-            case DEC_BC:
-                registers.bc.dec();
-                break;
+        on(LD_BC_nn, immediate -> registers.bc(immediate));
 
-            case INC_C:
-                inc(registers.c);
-                break;
+        on(LD_iBCi_A, immediate -> writeByte(registers.bc(), registers.a()));
 
-            case DEC_C:
-                dec(registers.c);
-                break;
+        on(INC_BC, immediate -> registers.bc(registers.bc() + 1));
 
-            case LD_C_n: {
-                Byte data = loadImmediateByte(registers.pc);
-                load(registers.c, data);
-                break;
-            }
+        on(INC_B, immediate -> registers.write(B, inc(registers.read(B))));
 
-            case RRCA:
-                rrca(registers.a);
-                break;
+        on(DEC_B, immediate -> registers.write(B, dec(registers.read(B))));
 
-            case STOP:
-                registers.pc.inc();
-                break;
+        on(LD_B_n, immediate -> registers.write(B, immediate));
 
-            case LD_DE_nn: {
-                Short data = loadImmediateShort(registers.pc);
-                registers.de.setValue(data.intValue());
-                break;
-            }
+        on(RLCA, immediate -> registers.a(rlca(registers.a())));
 
-            case LD_iDEi_A:
-                write(registers.de, registers.a);
-                break;
+        on(LD_inni_SP, immediate -> writeShort(immediate, registers.sp()));
 
-            case INC_DE:
-                registers.de.inc();
-                break;
+        on(ADD_HL_BC, immediate -> registers.hl(add16(registers.hl(), registers.bc())));
 
-            case INC_D:
-                inc(registers.d);
-                break;
+        on(LD_A_iBCi, immediate -> registers.a(readByte(registers.bc())));
 
-            case DEC_D:
-                dec(registers.d);
-                break;
+        on(DEC_BC, immediate -> registers.bc(registers.bc() - 1));
 
-            case LD_D_n: {
-                Byte data = loadImmediateByte(registers.pc);
-                load(registers.d, data);
-                break;
-            }
+        on(INC_C, immediate -> registers.write(C, inc(registers.read(C))));
 
-            case RLA:
-                rl(registers.a, registers.f.cf());
-                break;
+        on(DEC_C, immediate -> registers.write(C, dec(registers.read(C))));
 
-            case JR_n: {
-                Byte offset = loadImmediateByte(registers.pc);
-                jr(true, offset);
-                break;
-            }
+        on(LD_C_n, immediate -> registers.write(C, immediate));
 
-            case ADD_HL_DE: {
-                add(registers.hl, registers.de);
-                break;
-            }
+        on(RRCA, immediate -> registers.a(rrca(registers.a())));
 
-            case LD_A_iDEi: {
-                Byte data = read(registers.de);
-                load(registers.a, data);
-                break;
-            }
+        // The byte following STOP is fetched as its operand and ignored
+        on(STOP, immediate -> {
+        });
 
-            case DEC_DE:
-                registers.de.inc();
-                break;
+        on(LD_DE_nn, immediate -> registers.de(immediate));
 
-            case INC_E:
-                inc(registers.e);
-                break;
+        on(LD_iDEi_A, immediate -> writeByte(registers.de(), registers.a()));
 
-            case DEC_E:
-                dec(registers.e);
-                break;
+        on(INC_DE, immediate -> registers.de(registers.de() + 1));
 
-            case LD_E_n: {
-                Byte data = loadImmediateByte(registers.pc);
-                load(registers.e, data);
-                break;
-            }
+        on(INC_D, immediate -> registers.write(D, inc(registers.read(D))));
 
-            case RRA: {
-                rra(registers.a, registers.f.cf());
-                break;
-            }
+        on(DEC_D, immediate -> registers.write(D, dec(registers.read(D))));
 
-            case JR_NZ_n: {
-                Byte address = loadImmediateByte(registers.pc);
-                jr(registers.f.zf() == ZERO, address);
-            }
-            break;
+        on(LD_D_n, immediate -> registers.write(D, immediate));
 
-            case LD_HL_nn: {
-                Short address = loadImmediateShort(registers.pc);
-                load(registers.hl, address);
-                break;
-            }
+        on(RLA, immediate -> registers.a(rl(registers.a(), registers.carry())));
 
-            case LDI_iHLi_A:
-                write(registers.hl, registers.a);
-                registers.hl.inc();
-                break;
+        on(JR_n, immediate -> jr(true, immediate));
 
-            case INC_HL:
-                registers.hl.inc();
-                break;
+        on(ADD_HL_DE, immediate -> registers.hl(add16(registers.hl(), registers.de())));
 
-            case INC_H:
-                inc(registers.h);
-                break;
+        on(LD_A_iDEi, immediate -> registers.a(readByte(registers.de())));
 
-            case DEC_H:
-                dec(registers.h);
-                break;
+        on(DEC_DE, immediate -> registers.de(registers.de() + 1));
 
-            case LD_H_n: {
-                Byte data = loadImmediateByte(registers.pc);
-                load(registers.h, data);
-                break;
-            }
+        on(INC_E, immediate -> registers.write(E, inc(registers.read(E))));
 
-            case DAA:
-                int upperNibble = registers.a.upperNibble();
-                int lowerNibble = registers.a.lowerNibble();
-
-                newf.setValue(0);
-                newf.nf(registers.f.nf());
-
-                if (registers.f.nf().intValue() == 0) {
-
-                    if (registers.f.cf().intValue() == 0) {
-                        if ((upperNibble <= 8) && (lowerNibble >= 0xA) &&
-                                (registers.f.hf().intValue() == 0)) {
-                            registers.a.setValue(registers.a.intValue() + 0x06);
-                        }
-
-                        if ((upperNibble <= 9) && (lowerNibble <= 0x3) &&
-                                (registers.f.hf().intValue() == 1)) {
-                            registers.a.setValue(registers.a.intValue() + 0x06);
-                        }
-
-                        if ((upperNibble >= 0xA) && (lowerNibble <= 0x9) &&
-                                (registers.f.hf().intValue() == 0)) {
-                            registers.a.setValue(registers.a.intValue() + 0x60);
-                            newf.cf(ONE);
-                        }
-
-                        if ((upperNibble >= 0x9) && (lowerNibble >= 0xA) &&
-                                (registers.f.hf().intValue() == 0)) {
-                            registers.a.setValue(registers.a.intValue() + 0x66);
-                            newf.cf(ONE);
-                        }
-
-                        if ((upperNibble >= 0xA) && (lowerNibble <= 0x3) &&
-                                (registers.f.hf().intValue() == 1)) {
-                            registers.a.setValue(registers.a.intValue() + 0x66);
-                            newf.cf(ONE);
-                        }
-
-                    } else {  // If carry set
-
-                        if ((upperNibble <= 0x2) && (lowerNibble <= 0x9) &&
-                                (registers.f.hf().intValue() == 0)) {
-                            registers.a.setValue(registers.a.intValue() + 0x60);
-                            newf.cf(ONE);
-                        }
-
-                        if ((upperNibble <= 0x2) && (lowerNibble >= 0xA) &&
-                                (registers.f.hf().intValue() == 0)) {
-                            registers.a.setValue(registers.a.intValue() + 0x66);
-                            newf.cf(ONE);
-                        }
-
-                        if ((upperNibble <= 0x3) && (lowerNibble <= 0x3) &&
-                                (registers.f.hf().intValue() == 1)) {
-                            registers.a.setValue(registers.a.intValue() + 0x66);
-                            newf.cf(ONE);
-                        }
+        on(DEC_E, immediate -> registers.write(E, dec(registers.read(E))));
 
-                    }
+        on(LD_E_n, immediate -> registers.write(E, immediate));
 
-                } else { // Subtract is set
+        on(RRA, immediate -> registers.a(rra(registers.a(), registers.carry())));
 
-                    if (registers.f.cf().intValue() == 0) {
+        on(JR_NZ_n, immediate -> jr(!registers.zf(), immediate));
 
-                        if ((upperNibble <= 0x8) && (lowerNibble >= 0x6) &&
-                                (registers.f.hf().intValue() == 1)) {
-                            registers.a.setValue(registers.a.intValue() + 0xFA);
-                        }
+        on(LD_HL_nn, immediate -> registers.hl(immediate));
 
-                    } else { // Carry is set
+        on(LDI_iHLi_A, immediate -> {
+            writeByte(registers.hl(), registers.a());
+            registers.hl(registers.hl() + 1);
+        });
 
-                        if ((upperNibble >= 0x7) && (lowerNibble <= 0x9) &&
-                                (registers.f.hf().intValue() == 0)) {
-                            registers.a.setValue(registers.a.intValue() + 0xA0);
-                            newf.cf(ONE);
-                        }
+        on(INC_HL, immediate -> registers.hl(registers.hl() + 1));
 
-                        if ((upperNibble >= 0x6) && (lowerNibble >= 0x6) &&
-                                (registers.f.hf().intValue() == 1)) {
-                            registers.a.setValue(registers.a.intValue() + 0x9A);
-                            newf.cf(ONE);
-                        }
+        on(INC_H, immediate -> registers.write(H, inc(registers.read(H))));
 
-                    }
+        on(DEC_H, immediate -> registers.write(H, dec(registers.read(H))));
 
-                }
+        on(LD_H_n, immediate -> registers.write(H, immediate));
 
-                if (registers.a.intValue() == 0) {
-                    newf.zf(ONE);
-                }
+        on(DAA, immediate -> daa());
 
-                registers.f.setValue(newf.intValue());
+        on(JR_Z_n, immediate -> jr(registers.zf(), immediate));
 
-                break;
+        on(ADD_HL_HL, immediate -> registers.hl(add16(registers.hl(), registers.hl())));
 
-            case JR_Z_n: {
-                Byte address = loadImmediateByte(registers.pc);
-                jr(registers.f.zf() == ONE, address);
-                break;
-            }
+        on(LDI_A_iHLi, immediate -> {
+            registers.a(readByte(registers.hl()));
+            registers.hl(registers.hl() + 1);
+        });
 
-            case ADD_HL_HL: {
-                add(registers.hl, registers.hl);
-                break;
-            }
+        on(DEC_HL, immediate -> registers.hl(registers.hl() - 1));
 
-            case LDI_A_iHLi: {
-                Byte data = read(registers.hl);
-                load(registers.a, data);
-                registers.hl.inc();
-                break;
-            }
+        on(INC_L, immediate -> registers.write(L, inc(registers.read(L))));
 
-            case DEC_HL:
-                registers.hl.dec();
-                break;
+        on(DEC_L, immediate -> registers.write(L, dec(registers.read(L))));
 
-            case INC_L:
-                inc(registers.l);
-                break;
+        on(LD_L_n, immediate -> registers.write(L, immediate));
 
-            case DEC_L:
-                dec(registers.l);
-                break;
+        on(CPL, immediate -> {
+            registers.a(~registers.a());
+            registers.f(registers.f() | SUBTRACT_FLAG | HALF_CARRY_FLAG);
+        });
 
-            case LD_L_n: {
-                Byte address = loadImmediateByte(registers.pc);
-                load(registers.l, address);
-                break;
-            }
+        on(JR_NC_n, immediate -> jr(!registers.cf(), immediate));
 
-            case CPL:
-                registers.a.neg();
-                registers.f.nf(ONE);
-                registers.f.hf(ONE);
-                break;
+        on(LD_SP_nn, immediate -> registers.sp(immediate));
 
-            case JR_NC_n: {
-                Byte address = loadImmediateByte(registers.pc);
-                jr(registers.f.cf() == ZERO, address);
-                break;
-            }
+        on(LDD_iHLi_A, immediate -> {
+            writeByte(registers.hl(), registers.a());
+            registers.hl(registers.hl() - 1);
+        });
 
-            case LD_SP_nn: {
-                Short address = loadImmediateShort(registers.pc);
-                load(registers.sp, address);
-                break;
-            }
+        on(INC_SP, immediate -> registers.sp(registers.sp() + 1));
 
-            case LDD_iHLi_A:
-                write(registers.hl, registers.a);
-                registers.hl.dec();
-                break;
+        on(INC_iHLi, immediate -> writeByte(registers.hl(), inc(readByte(registers.hl()))));
 
-            case INC_SP:
-                registers.sp.inc();
-                break;
+        on(DEC_iHLi, immediate -> registers.hl(registers.hl() - 1));
 
-            case INC_iHLi: {
-                Byte data = read(registers.hl);
-                inc(data);
-                write(registers.hl, data);
-                break;
-            }
+        on(LD_iHLi_n, immediate -> writeByte(registers.hl(), immediate));
 
-            case DEC_iHLi:
-                registers.hl.dec();
-                break;
+        on(SCF, immediate -> registers.f((registers.f() & ZERO_FLAG) | CARRY_FLAG));
 
-            case LD_iHLi_n: {
-                Byte address = loadImmediateByte(registers.pc);
-                write(registers.hl, address);
-                break;
-            }
+        on(JR_C_n, immediate -> jr(registers.cf(), immediate));
 
-            case SCF:
-                registers.f.nf(ZERO);
-                registers.f.hf(ZERO);
-                registers.f.cf(ONE);
-                break;
+        on(ADD_HL_SP, immediate -> registers.hl(add16(registers.hl(), registers.sp())));
 
-            case JR_C_n: {
-                Byte address = loadImmediateByte(registers.pc);
-                jr(registers.f.cf() == ONE, address);
-                break;
-            }
+        on(LDD_A_iHLi, immediate -> {
+            registers.a(readByte(registers.hl()));
+            registers.hl(registers.hl() - 1);
+        });
 
-            case ADD_HL_SP: {
-                add(registers.hl, registers.sp);
-                break;
-            }
+        on(DEC_SP, immediate -> registers.sp(registers.sp() - 1));
 
-            case LDD_A_iHLi: {
-                Byte data = read(registers.hl);
-                load(registers.a, data);
-                registers.hl.dec();
-                break;
-            }
+        on(INC_A, immediate -> registers.a(inc(registers.a())));
 
-            case DEC_SP:
-                registers.sp.dec();
-                break;
+        on(DEC_A, immediate -> registers.a(dec(registers.a())));
 
-            case INC_A:
-                inc(registers.a);
-                break;
+        on(LD_A_n, immediate -> registers.a(immediate));
 
-            case DEC_A:
-                dec(registers.a);
-                break;
+        on(CCF, immediate -> registers.f((registers.f() & (ZERO_FLAG | CARRY_FLAG)) ^ CARRY_FLAG));
 
-            case LD_A_n: {
-                Byte data = loadImmediateByte(registers.pc);
-                load(registers.a, data);
-                break;
-            }
+        on(HALT, immediate -> halt());
 
-            case CCF:
-                registers.f.nf(ZERO);
-                registers.f.hf(ZERO);
-                registers.f.cf(registers.f.cf().toggle());
-                break;
+        on(XOR_A, immediate -> registers.a(xor(registers.a(), registers.a())));
 
-            case LD_B_B:
-                break;
+        on(RET_NZ, immediate -> ret(!registers.zf()));
 
-                /*
-                 HALT
-                 */
-            case HALT:
-                interruptController.setInterruptMasterEnable(true);
-                while (interruptFlags().intValue() == 0) {
-                    initiateInterrupts();
-                    instructionCounter.inc();
-                }
-                break;
+        on(POP_BC, immediate -> registers.bc(pop()));
 
-            case XOR_A:
-                xor(registers.a, registers.a);
-                break;
+        on(JP_NZ_nn, immediate -> jp(!registers.zf(), immediate));
 
-            case RET_NZ:
-                ret(registers.f.zf() == ZERO, registers.sp);
-                break;
+        on(JP_nn, immediate -> jp(true, immediate));
 
-            case POP_BC: {
-                load(registers.bc, popShort(registers.sp));
-                break;
-            }
+        on(CALL_NZ_nn, immediate -> call(!registers.zf(), immediate));
 
-            case JP_NZ_nn: {
-                Short address = loadImmediateShort(registers.pc);
-                jp(registers.f.zf() == ZERO, address);
-                break;
-            }
+        on(PUSH_BC, immediate -> push(registers.bc()));
 
-            case JP_nn: {
-                Short address = loadImmediateShort(registers.pc);
-                jp(address);
-                break;
-            }
+        on(ADD_n, immediate -> registers.a(add(registers.a(), immediate)));
 
-            case CALL_NZ_nn:
-                call(registers.f.zf() == ZERO);
-                break;
+        on(RST_08, immediate -> rst(0x08));
 
-            case PUSH_BC:
-                pushShort(registers.sp, registers.bc);
-                break;
+        on(RET_Z, immediate -> ret(registers.zf()));
 
-            case ADD_n: {
-                Byte data = loadImmediateByte(registers.pc);
-                add(registers.a, data);
-                break;
-            }
+        on(RET, immediate -> ret(true));
 
-            case RST_08:
-                rst(0x08);
-                break;
+        on(JP_Z_nn, immediate -> jp(registers.zf(), immediate));
 
-            case RET_Z: {
-                ret(registers.f.zf() == ONE, registers.sp);
-                break;
-            }
+        // Shift/bit test
+        on(PREFIX_CB, immediate -> {
+            cycles += Cycles.extended(immediate);
+            extendedOpcodeHandlers[immediate].execute(immediate);
+        });
 
-            case RET:
-                ret(registers.sp);
-                break;
+        on(CALL_Z_nn, immediate -> call(registers.zf(), immediate));
 
-            case JP_Z_nn: {
-                Short address = loadImmediateShort(registers.pc);
-                jp(registers.f.zf() == ONE, address);
-                break;
-            }
+        on(CALL_nn, immediate -> call(true, immediate));
 
-            // Shift/bit test
-            case PREFIX_CB:
-                prefixCB = true;
-                break;
+        on(ADC_n, immediate -> registers.a(adc(registers.a(), immediate, registers.carry())));
 
-            case CALL_Z_nn:
-                call(registers.f.zf() == ONE);
-                break;
+        on(RST_00, immediate -> rst(0x00));
 
-            case CALL_nn: {
-                call();
-                break;
-            }
+        on(RET_NC, immediate -> ret(!registers.cf()));
 
-            case ADC_n: {
-                Byte data = loadImmediateByte(registers.pc);
-                adc(registers.a, data, registers.f.cf());
-                break;
-            }
+        on(POP_DE, immediate -> registers.de(pop()));
 
-            case RST_00:
-                rst(0x00);
-                break;
+        on(JP_NC_nn, immediate -> jp(!registers.cf(), immediate));
 
-            case RET_NC:
-                ret(registers.f.cf() == ZERO, registers.sp);
-                break;
+        on(CALL_NC_nn, immediate -> call(!registers.cf(), immediate));
 
-            case POP_DE: {
-                Short data = popShort(registers.sp);
-                registers.de.setValue(data.intValue());
-                break;
-            }
+        on(PUSH_DE, immediate -> push(registers.de()));
 
-            case JP_NC_nn: {
-                Short address = loadImmediateShort(registers.pc);
-                jp(registers.f.cf() == ZERO, address);
-                break;
-            }
+        on(SUB_n, immediate -> registers.a(sub(registers.a(), immediate)));
 
-            case CALL_NC_nn:
-                call(registers.f.cf() == ZERO);
-                break;
+        on(RST_10, immediate -> rst(0x10));
 
-            case PUSH_DE:
-                pushShort(registers.sp, registers.de);
-                break;
+        on(RET_C, immediate -> ret(registers.cf()));
 
-            case SUB_n: {
-                Byte data = loadImmediateByte(registers.pc);
-                sub(registers.a, data);
-                break;
-            }
+        on(RETI, immediate -> {
+            interruptController.setInterruptMasterEnable(true);
+            ret(true);
+        });
 
-            case RST_10:
-                rst(0x10);
-                break;
+        on(JP_C_nn, immediate -> jp(registers.cf(), immediate));
 
-            case RET_C:
-                ret(registers.f.cf() == ONE, registers.sp);
-                break;
+        on(CALL_C_nn, immediate -> call(registers.cf(), immediate));
 
-            case RETI:
-                interruptController.setInterruptMasterEnable(true);
-                ret(registers.sp);
-                break;
+        on(SBC_n, immediate -> registers.a(sbc(registers.a(), immediate, registers.carry())));
 
-            case JP_C_nn: {
-                Short address = loadImmediateShort(registers.pc);
-                jp(registers.f.cf() == ONE, address);
-                break;
-            }
+        on(RST_18, immediate -> rst(0x18));
 
-            case CALL_C_nn:
-                call(registers.f.cf() == ONE);
-                break;
+        on(LDH_ini_A, immediate -> writeByte(0xFF00 | immediate, registers.a()));
 
-            case SBC_n: {
-                Byte data = loadImmediateByte(registers.pc);
-                sbc(registers.a, data, registers.f.cf());
-                break;
-            }
+        on(POP_HL, immediate -> registers.hl(pop()));
 
-            case RST_18:
-                rst(0x18);
-                break;
+        // LDH (FF00 + C), A
+        on(LDH_iCi_A, immediate -> writeByte(0xFF00 | registers.read(C), registers.a()));
 
-            case LDH_ini_A: {
-                Byte data = loadImmediateByte(registers.pc);
-                write(new Short(0xFF00 | data.intValue()), registers.a);
-                break;
-            }
+        on(PUSH_HL, immediate -> push(registers.hl()));
 
-            case POP_HL: {
-                Short data = popShort(registers.sp);
-                load(registers.hl, data);
-                break;
-            }
+        on(AND_n, immediate -> registers.a(and(registers.a(), immediate)));
 
-            // LDH (FF00 + C), A
-            case LDH_iCi_A: {
-                Short address = new Short(new Byte(0xFF), registers.c);
-                write(address, registers.a);
-                break;
-            }
+        on(RST_20, immediate -> rst(0x20));
 
-            case PUSH_HL:
-                pushShort(registers.sp, registers.hl);
-                break;
+        on(ADD_SP_nn, immediate -> registers.sp(add16(registers.sp(), immediate)));
 
-            case AND_n: {
-                Byte data = loadImmediateByte(registers.pc);
-                and(registers.a, data);
-                break;
-            }
+        on(JP_HL, immediate -> registers.pc(registers.hl()));
 
-            case RST_20:
-                rst(0x20);
-                break;
+        on(LD_inni_A, immediate -> writeByte(immediate, registers.a()));
 
-            case ADD_SP_nn: {
-                Short data = loadImmediateShort(registers.pc);
-                add(registers.sp, data);
-                break;
-            }
+        on(XOR_n, immediate -> registers.a(xor(registers.a(), immediate)));
 
-            case JP_HL: {
-                jp(registers.hl);
-                break;
-            }
+        on(RST_28, immediate -> rst(0x28));
 
-            case LD_inni_A: {
-                Short address = loadImmediateShort(registers.pc);
-                write(address, registers.a);
-                break;
-            }
+        on(LDH_A_ini, immediate -> registers.a(readByte(0xFF00 | immediate)));
 
-            case XOR_n: {
-                Byte data = loadImmediateByte(registers.pc);
-                xor(registers.a, data);
-                break;
-            }
+        on(POP_AF, immediate -> registers.af(pop()));
 
-            case RST_28:
-                rst(0x28);
-                break;
+        // LD A, (FF00 + C)
+        on(LDH_A_iCi, immediate -> registers.a(readByte(0xFF00 | registers.read(C))));
 
-            case LDH_A_ini: {
-                Byte addressOffset = loadImmediateByte(registers.pc);
-                Byte ff = new Byte(0xFF);
+        on(DI, immediate -> interruptController.setInterruptMasterEnable(false));
 
-                Short address = new Short(ff, addressOffset);
-                load(registers.a, read(address));
-                break;
-            }
+        on(PUSH_AF, immediate -> push(registers.af()));
 
-            case POP_AF:
-                load(registers.af, popShort(registers.sp));
-                break;
+        on(OR_n, immediate -> registers.a(or(registers.a(), immediate)));
 
-            // LD A, (FF00 + C)
-            case LDH_A_iCi: {
-                Short address = new Short(new Byte(0xFF), registers.c);
-                Byte data = read(address);
-                load(registers.a, data);
-                break;
-            }
+        on(RST_30, immediate -> rst(0x30));
 
-            case DI:
-                interruptController.setInterruptMasterEnable(false);
-                break;
+        // LD HL, SP + n  ** HALFCARRY FLAG NOT SET ***
+        on(LDHL_SP_n, immediate -> registers.hl(add16(registers.hl(), (registers.sp() + immediate) & 0xFFFF)));
 
-            case PUSH_AF:
-                pushShort(registers.sp, registers.af);
-                break;
+        on(LD_SP_HL, immediate -> registers.sp(registers.hl()));
 
-            case OR_n: {
-                Byte data = loadImmediateByte(registers.pc);
-                or(registers.a, data);
-                break;
-            }
+        on(LD_A_inni, immediate -> registers.a(readByte(immediate)));
 
-            case RST_30:
-                rst(0x30);
-                break;
+        on(EI, immediate -> ieDelay = 1);
 
-            // LD HL, SP + n  ** HALFCARRY FLAG NOT SET ***
-            case LDHL_SP_n: {
-                Byte offset = loadImmediateByte(registers.pc);
-                int result = registers.sp.intValue() + offset.intValue();
-                add(registers.hl, new Short(result));
-                break;
-            }
+        on(CP_n, immediate -> cp(registers.a(), immediate));
 
-            case LD_SP_HL:
-                registers.sp.setValue(registers.hl.intValue());
-                break;
+        on(RST_38, immediate -> rst(0x38));
 
-            case LD_A_inni: {
-                Short address = loadImmediateShort(registers.pc);
-                Byte data = read(address);
-                load(registers.a, data);
-                break;
+        for (int opcode = 0; opcode < 0x100; opcode++) {
+            if (baseOpcodeHandlers[opcode] == null) {
+                BaseOpcode unrecognized = BaseOpcode.from(opcode);
+                baseOpcodeHandlers[opcode] = immediate -> {
+                    throw new IllegalArgumentException("Unrecognized base opcode [" + String.format("%02X", unrecognized.intValue()) + "][" + unrecognized.name() + "]");
+                };
             }
+        }
+    }
 
-            case EI:
-                ieDelay = 1;
-                break;
+    private OpcodeHandler aluHandler(int operation, int operand) {
+        switch (operation) {
 
-            case CP_n: {
-                Byte data = loadImmediateByte(registers.pc);
-                cp(registers.a, data);
-                break;
-            }
+            // ADD A, r
+            case 0:
+                return immediate -> registers.a(add(registers.a(), readOperand(operand)));
 
-            case RST_38:
-                rst(0x38);
-                break;
+            // ADC A, r
+            case 1:
+                return immediate -> registers.a(adc(registers.a(), readOperand(operand), registers.carry()));
 
-            default:
+            // SUB A, r
+            case 2:
+                return immediate -> registers.a(sub(registers.a(), readOperand(operand)));
 
-                // ALU Operations
-                if ((opcode.intValue() & 0xC0) == 0x80) {
-                    Registers.Register register = Registers.Register.from(opcode.intValue() & 0x07);
-                    int operand = registers.registerRead(register);
-                    switch ((opcode.intValue() & 0x38) >> 3) {
-
-                        // ADC A, r
-                        case 1:
-                            adc(registers.a, new Byte(operand), registers.f.cf());
-                            break;
-
-                        // ADD A, r
-                        case 0: {
-                            add(registers.a, new Byte(operand));
-                            break;
-                        }
-
-                        // SBC A, r
-                        case 3:
-                            sbc(registers.a, new Byte(operand), registers.f.cf());
-                            break;
-
-                        // SUB A, r
-                        case 2: {
-                            sub(registers.a, new Byte(operand));
-                            break;
-                        }
-
-                        // AND A, r
-                        case 4:
-                            and(registers.a, new Byte(operand));
-                            break;
-
-                        // XOR A, r
-                        case 5:
-                            xor(registers.a, new Byte(operand));
-                            break;
-
-                        // OR A, r
-                        case 6:
-                            or(registers.a, new Byte(operand));
-                            break;
-
-                        // CP A, r (compare)
-                        case 7:
-                            cp(registers.a, new Byte(operand));
-                            break;
-                    }
+            // SBC A, r
+            case 3:
+                return immediate -> registers.a(sbc(registers.a(), readOperand(operand), registers.carry()));
 
-                } else if ((opcode.intValue() & 0xC0) == 0x40) {   // Byte 0x01xxxxxxx indicates 8-bit ld
-                    Registers.Register register1 = Registers.Register.from((opcode.intValue() & 0x38) >> 3);
-                    Registers.Register register2 = Registers.Register.from(opcode.intValue() & 0x07);
-                    registers.registerWrite(register1, registers.registerRead(register2));
-                } else {
-                    throw new IllegalArgumentException("Unrecognized base opcode [" + String.format("%02X", opcode.intValue()) + "][" + opcode.name() + "]");
-                }
+            // AND A, r
+            case 4:
+                return immediate -> registers.a(and(registers.a(), readOperand(operand)));
+
+            // XOR A, r
+            case 5:
+                return immediate -> registers.a(xor(registers.a(), readOperand(operand)));
+
+            // OR A, r
+            case 6:
+                return immediate -> registers.a(or(registers.a(), readOperand(operand)));
+
+            // CP A, r (compare)
+            case 7:
+                return immediate -> cp(registers.a(), readOperand(operand));
+
+            default:
+                throw new IllegalArgumentException();
         }
+    }
 
+    /**
+     * Reads an opcode operand encoded as a register index, where index 6 is the memory at (HL)
+     */
+    private int readOperand(int index) {
+        if (index == F) {
+            return readByte(registers.hl());
+        }
+        return registers.read(index);
     }
 
-    private void executeExtendedOpcode(ExtendedOpcode opcode) {
-        final FlagRegister newf = new FlagRegister();
+    private void writeOperand(int index, int data) {
+        if (index == F) {
+            writeByte(registers.hl(), data & 0xFF);
+        } else {
+            registers.write(index, data);
+        }
+    }
 
-        int regNum = opcode.intValue() & 0x07;
-        Registers.Register register = Registers.Register.from(regNum);
-        int data = registers.registerRead(register);
+    private void daa() {
+        int a = registers.a();
+        int upperNibble = a >> 4;
+        int lowerNibble = a & 0x0F;
+        boolean halfCarry = registers.hf();
 
-        if ((opcode.intValue() & 0xC0) == 0) {
-            switch ((opcode.intValue() & 0xF8)) {
+        int newf = registers.f() & SUBTRACT_FLAG;
 
-                // RLC A
-                case 0x00: {
-                    registers.f.setValue(0);
-                    if ((data & 0x80) == 0x80) {
-                        registers.f.cf(ONE);
-                    }
-                    data <<= 1;
-                    if (registers.f.cf().intValue() == 1) {
-                        data |= 1;
-                    }
+        if (!registers.nf()) {
 
-                    data &= 0xFF;
-                    if (data == 0) {
-                        registers.f.zf(ONE);
-                    }
-                    registers.registerWrite(register, data);
-                    break;
+            if (!registers.cf()) {
+                if ((upperNibble <= 8) && (lowerNibble >= 0xA) && !halfCarry) {
+                    a += 0x06;
                 }
 
-                // RRC A
-                case 0x08: {
-                    registers.f.setValue(0);
-                    if ((data & 0x01) == 0x01) {
-                        registers.f.cf(ONE);
-                    }
-                    data >>= 1;
-                    if (registers.f.cf().intValue() == 1) {
-                        data |= 0x80;
-                    }
-                    if (data == 0) {
-                        registers.f.zf(ONE);
-                    }
-                    registers.registerWrite(register, data);
-                    break;
+                if ((upperNibble <= 9) && (lowerNibble <= 0x3) && halfCarry) {
+                    a += 0x06;
                 }
 
-                // RL r
-                case 0x10: {
-                    newf.setValue(0);
-                    if ((data & 0x80) == 0x80) {
-                        newf.cf(ONE);
-                    }
-                    data <<= 1;
+                if ((upperNibble >= 0xA) && (lowerNibble <= 0x9) && !halfCarry) {
+                    a += 0x60;
+                    newf |= CARRY_FLAG;
+                }
 
-                    if (registers.f.cf().intValue() == 1) {
-                        data |= 1;
-                    }
+                if ((upperNibble >= 0x9) && (lowerNibble >= 0xA) && !halfCarry) {
+                    a += 0x66;
+                    newf |= CARRY_FLAG;
+                }
 
-                    data &= 0xFF;
-                    if (data == 0) {
-                        newf.zf(ONE);
-                    }
-                    registers.f.setValue(newf.intValue());
-                    registers.registerWrite(register, data);
-                    break;
+                if ((upperNibble >= 0xA) && (lowerNibble <= 0x3) && halfCarry) {
+                    a += 0x66;
+                    newf |= CARRY_FLAG;
                 }
 
-                // RR r
-                case 0x18: {
-                    newf.setValue(0);
-                    if ((data & 0x01) == 0x01) {
-                        newf.cf(ONE);
+            } else {  // If carry set
 
-                    }
-                    data >>= 1;
+                if ((upperNibble <= 0x2) && (lowerNibble <= 0x9) && !halfCarry) {
+                    a += 0x60;
+                    newf |= CARRY_FLAG;
+                }
 
-                    if (registers.f.cf().intValue() == 1) {
-                        data |= 0x80;
-                    }
+                if ((upperNibble <= 0x2) && (lowerNibble >= 0xA) && !halfCarry) {
+                    a += 0x66;
+                    newf |= CARRY_FLAG;
+                }
 
-                    if (data == 0) {
-                        newf.zf(ONE);
-                    }
-                    registers.f.setValue(newf.intValue());
-                    registers.registerWrite(register, data);
-                    break;
+                if ((upperNibble <= 0x3) && (lowerNibble <= 0x3) && halfCarry) {
+                    a += 0x66;
+                    newf |= CARRY_FLAG;
                 }
 
-                // SLA r
-                case 0x20: {
-                    registers.f.setValue(0);
-                    if ((data & 0x80) == 0x80) {
-                        registers.f.cf(ONE);
-                    }
+            }
 
-                    data <<= 1;
+        } else { // Subtract is set
 
-                    data &= 0xFF;
-                    if (data == 0) {
-                        registers.f.zf(ONE);
-                    }
+            if (!registers.cf()) {
 
-                    registers.registerWrite(register, data);
-                    break;
+                if ((upperNibble <= 0x8) && (lowerNibble >= 0x6) && halfCarry) {
+                    a += 0xFA;
                 }
 
-                // SRA r
-                case 0x28: {
-                    short topBit;
+            } else { // Carry is set
 
-                    topBit = (short) (data & 0x80);
-                    registers.f.setValue(0);
-                    if ((data & 0x01) == 0x01) {
-                        registers.f.cf(ONE);
-                    }
+                if ((upperNibble >= 0x7) && (lowerNibble <= 0x9) && !halfCarry) {
+                    a += 0xA0;
+                    newf |= CARRY_FLAG;
+                }
 
-                    data >>= 1;
-                    data |= topBit;
+                if ((upperNibble >= 0x6) && (lowerNibble >= 0x6) && halfCarry) {
+                    a += 0x9A;
+                    newf |= CARRY_FLAG;
+                }
 
-                    if (data == 0) {
-                        registers.f.zf(ONE);
-                    }
+            }
 
-                    registers.registerWrite(register, data);
-                    break;
-                }
+        }
 
-                // SWAP r
-                case 0x30: {
+        a &= 0xFF;
+        if (a == 0) {
+            newf |= ZERO_FLAG;
+        }
 
-                    data = (short) (((data & 0x0F) << 4) | ((data & 0xF0) >> 4));
-                    registers.f.setValue(0);
-                    if (data == 0) {
-                        registers.f.zf(ONE);
-                    }
+        registers.a(a);
+        registers.f(newf);
+    }
 
-                    registers.registerWrite(register, data);
-                    break;
-                }
+    /**
+     * Waits for an interrupt.  Unless a flag is already set the CPU is left halted, and the cycles
+     * of HALT are taken when it wakes.
+     */
+    private void halt() {
+        interruptController.setInterruptMasterEnable(true);
+        if (interruptFlags() == 0) {
+            halted = true;
+            cycles = 0;
+        }
+    }
 
-                // SRL r
-                case 0x38: {
-                    registers.f.setValue(0);
-                    if ((data & 0x01) == 0x01) {
-                        registers.f.cf(ONE);
-                    }
+    /**
+     * Moves a halted CPU on to until, or wakes it once an interrupt flag is set.  Only a scheduled
+     * event can set one, so the clock goes straight to until rather than idling through NOPs, in
+     * whole NOPs so that events are handled at the same cycles either way.  Waking completes the
+     * HALT, taking its cycles and dispatching the interrupt.
+     */
+    private void waitForInterrupt(long until) {
+        if (interruptFlags() == 0) {
+            int nop = Cycles.base(NOP.intValue());
+            long wait = until - cycleCounter.getCount();
+            cycleCounter.add((wait + nop - 1) / nop * nop);
+            return;
+        }
 
-                    data >>= 1;
+        halted = false;
+        cycles = Cycles.base(HALT.intValue());
+        checkInterrupts();
+        cycleCounter.add(cycles);
+    }
 
-                    if (data == 0) {
-                        registers.f.zf(ONE);
-                    }
+    private void registerExtendedOpcodeHandlers() {
+        for (int opcode = 0; opcode < 0x100; opcode++) {
+            extendedOpcodeHandlers[opcode] = extendedOpcodeHandler(opcode, opcode & 0x07, (opcode & 0x38) >> 3);
+        }
+    }
 
-                    registers.registerWrite(register, data);
-                    break;
-                }
-            }
-        } else {
-            int mask;
-            int bitNumber = (opcode.intValue() & 0x38) >> 3;
+    private OpcodeHandler extendedOpcodeHandler(int opcode, int operand, int bitNumber) {
+        switch (opcode & 0xC0) {
 
             // BIT n, r
-            if ((opcode.intValue() & 0xC0) == 0x40) {
-                mask = (short) (0x01 << bitNumber);
-                registers.f.nf(ZERO);
-                registers.f.hf(ONE);
-                if ((data & mask) != 0) {
-                    registers.f.zf(ZERO);
-                } else {
-                    registers.f.zf(ONE);
-                }
-            }
+            case 0x40:
+                return immediate -> bit(bitNumber, readOperand(operand));
 
             // RES n, r
-            if ((opcode.intValue() & 0xC0) == 0x80) {
-                mask = (short) (0xFF - (0x01 << bitNumber));
-                data = (short) (data & mask);
-                registers.registerWrite(register, data);
-            }
+            case 0x80:
+                return immediate -> writeOperand(operand, readOperand(operand) & ~(0x01 << bitNumber));
 
             // SET n, r
-            if ((opcode.intValue() & 0xC0) == 0xC0) {
-                mask = (short) (0x01 << bitNumber);
-                data = (short) (data | mask);
-                registers.registerWrite(register, data);
-            }
+            case 0xC0:
+                return immediate -> writeOperand(operand, readOperand(operand) | (0x01 << bitNumber));
         }
-    }
 
-    final void execute() {
-        graphicsChip.startTime = System.currentTimeMillis();
+        switch (opcode & 0xF8) {
 
-        while (true) {
-            instructionCounter.inc();
+            // RLC r
+            case 0x00:
+                return immediate -> writeOperand(operand, rlc(readOperand(operand)));
 
-            Opcode opcode = Instruction.from(loadImmediateByte(registers.pc), prefixCB);
+            // RRC r
+            case 0x08:
+                return immediate -> writeOperand(operand, rrc(readOperand(operand)));
 
-            if (prefixCB) {
-                executeExtendedOpcode((ExtendedOpcode) opcode);
-                prefixCB = false;
-            } else {
-                executeBaseOpcode((BaseOpcode) opcode);
-            }
+            // RL r
+            case 0x10:
+                return immediate -> writeOperand(operand, rl(readOperand(operand), registers.carry()));
 
-            if (ieDelay != -1) {
+            // RR r
+            case 0x18:
+                return immediate -> writeOperand(operand, rr(readOperand(operand), registers.carry()));
 
-                if (ieDelay > 0) {
-                    ieDelay--;
-                } else {
-                    interruptController.setInterruptMasterEnable(true);
-                    ieDelay = -1;
-                }
+            // SLA r
+            case 0x20:
+                return immediate -> writeOperand(operand, sla(readOperand(operand)));
 
-            }
+            // SRA r
+            case 0x28:
+                return immediate -> writeOperand(operand, sra(readOperand(operand)));
 
-            if (interruptController.isInterruptMasterEnable()) {
-                checkInterrupts();
-            }
+            // SWAP r
+            case 0x30:
+                return immediate -> writeOperand(operand, swap(readOperand(operand)));
 
-            initiateInterrupts();
+            // SRL r
+            case 0x38:
+                return immediate -> writeOperand(operand, srl(readOperand(operand)));
+
+            default:
+                throw new IllegalArgumentException("Unrecognized extended opcode [" + String.format("%02X", opcode) + "]");
         }
     }
 
-    private void call() {
-        call(true);
+    /**
+     * Why a run returned
+     */
+    public enum StopReason {
+        CYCLES, FRAMES, BREAKPOINT, STOPPED
     }
 
-    private void call(boolean condition) {
-        Short address = loadImmediateShort(registers.pc);
-        if (condition) {
-            call(address);
-        }
+    /**
+     * Runs until {@link #stop()} is called
+     */
+    public final void execute() {
+        framePacer.reset();
+        run(Scheduler.NEVER, Long.MAX_VALUE);
     }
 
-    private void call(Short address) {
-        pushShort(registers.sp, registers.pc);
-        jp(address);
+    /**
+     * Runs until the given number of frames have completed, a breakpoint is reached or
+     * {@link #stop()} is called.  Frames are paced by the frame pacer.
+     */
+    public StopReason runFrames(int frames) {
+        return run(Scheduler.NEVER, frameCount + frames);
     }
 
-    private void jp(boolean condition, Short address) {
-        if (condition) {
-            jp(address);
-        }
+    /**
+     * Runs for at least the given number of clock cycles, stopping at the end of the instruction
+     * that reaches it, or until a breakpoint is reached or {@link #stop()} is called
+     */
+    public StopReason runCycles(long cycles) {
+        return run(cycleCounter.getCount() + cycles, Long.MAX_VALUE);
     }
 
-    private void jp(Short address) {
-        registers.pc.setValue(address.intValue());
+    /**
+     * Makes the current run return once the instruction or event being handled is complete.  May
+     * be called from any thread; a stop requested while not running ends the next run at once.
+     */
+    public void stop() {
+        stopRequested = true;
     }
 
-    private void ret(Short stackAddress) {
-        Short address = popShort(stackAddress);
-        registers.pc.setValue(address.intValue());
+    public void addBreakpoint(int address) {
+        if (!breakpoints[address & 0xFFFF]) {
+            breakpoints[address & 0xFFFF] = true;
+            breakpointCount++;
+        }
     }
 
-    private void ret(boolean condition, Short stackAddress) {
-        if (condition) {
-            ret(stackAddress);
+    public void removeBreakpoint(int address) {
+        if (breakpoints[address & 0xFFFF]) {
+            breakpoints[address & 0xFFFF] = false;
+            breakpointCount--;
         }
     }
 
-    private Short popShort(Short address) {
-        Byte lowerByte = pop(address);
-        Byte upperByte = pop(address);
+    /**
+     * Runs until the cycle count reaches cycleLimit or the frame count reaches frameLimit.  The
+     * state is left as it is between instructions, so another run carries on where this one
+     * stopped.  A breakpoint at the program counter the run starts from does not stop it, so that
+     * running again after a breakpoint moves on.
+     */
+    private StopReason run(long cycleLimit, long frameLimit) {
+        long startInstructions = instructionCount;
 
-        return new Short(upperByte, lowerByte);
-    }
+        while (true) {
+            if (stopRequested) {
+                stopRequested = false;
+                return StopReason.STOPPED;
+            }
+            if (frameCount >= frameLimit) {
+                return StopReason.FRAMES;
+            }
+            if (cycleCounter.getCount() >= cycleLimit) {
+                return StopReason.CYCLES;
+            }
 
-    private Byte pop(Short address) {
-        Byte top = read(address);
-        address.inc();
-        return top;
-    }
+            long until = Math.min(scheduler.nextDeadline(), cycleLimit);
 
-    private void pushShort(Short address, Short data) {
-        push(address, data.getUpperByte());
-        push(address, data.getLowerByte());
-    }
+            if (halted) {
+                waitForInterrupt(until);
+            } else if (breakpointCount == 0) {
+                // Nothing but instructions run until the next event is due or HALT is executed
+                while (!halted && cycleCounter.getCount() < until) {
+                    executeBlock(until);
+                }
+            } else {
+                while (!halted && cycleCounter.getCount() < until) {
+                    if (breakpoints[registers.pc()] && instructionCount != startInstructions) {
+                        return StopReason.BREAKPOINT;
+                    }
+                    executeInstruction();
+                }
+            }
 
-    private void push(Short address, Byte data) {
-        address.dec();
-        write(address, data);
+            if (cycleCounter.getCount() >= scheduler.nextDeadline()) {
+                initiateInterrupts();
+            }
+        }
     }
 
-    private void jr(boolean condition, Byte address) {
-        if (condition) {
-            add(registers.pc, address);
+    /**
+     * Executes one instruction and handles the events that became due.  HALT is stepped over
+     * along with the wait up to the interrupt that ends it.  Returns the number of clock cycles
+     * taken.
+     */
+    int step() {
+        long start = cycleCounter.getCount();
+        if (!halted) {
+            executeInstruction();
         }
-    }
 
-    private void add(Short pc, Byte address) {
-        Short addressShort = Short.signedShortFromByte(address);
-        add(pc, addressShort);
+        while (halted) {
+            if (cycleCounter.getCount() >= scheduler.nextDeadline()) {
+                initiateInterrupts();
+            }
+            waitForInterrupt(scheduler.nextDeadline());
+        }
+
+        if (cycleCounter.getCount() >= scheduler.nextDeadline()) {
+            initiateInterrupts();
+        }
+
+        return (int) (cycleCounter.getCount() - start);
     }
 
-    private void rst(int address) {
-        registers.sp.dec();
-        write(registers.sp, registers.pc.getUpperByte());
-        registers.sp.dec();
-        write(registers.sp, registers.pc.getLowerByte());
-        load(registers.pc, new Short(address));
+    /**
+     * Executes one instruction and services interrupts, adding the cycles taken to the cycle
+     * count without handling events.  Returns the number of clock cycles taken.
+     */
+    private int executeInstruction() {
+        int pc = registers.pc();
+        int opcode = readByte(pc);
+        int operandLength = Operands.base(opcode);
+        int immediate = readImmediate(pc + 1, operandLength);
+
+        registers.pc(pc + 1 + operandLength);
+        instructionCount++;
+        cycles = Cycles.base(opcode);
+        baseOpcodeHandlers[opcode].execute(immediate);
+        serviceInterrupts();
+
+        cycleCounter.add(cycles);
+        return cycles;
     }
 
+    /**
+     * Executes the cached basic block at the program counter, leaving it early once the cycle
+     * count reaches until.  Where no block can be cached a single instruction is executed.  A
+     * polling loop that goes round once is then skipped ahead for as long as it would keep going
+     * round.
+     */
+    private void executeBlock(long until) {
+        BasicBlock block = blockCache.get(registers.pc());
 
-    private Byte loadImmediateByte(Short address) {
-        Byte immediate = read(address);
-        address.inc();
-        return immediate;
-    }
+        if (block == null) {
+            executeInstruction();
+            return;
+        }
 
-    private Short loadImmediateShort(Short address) {
-        Byte lowerByte = loadImmediateByte(address);
-        Byte upperByte = loadImmediateByte(address);
+        if (block.polledRegister == 0) {
+            runBlock(block, until);
+            return;
+        }
+
+        long startCycles = cycleCounter.getCount();
+        long startInstructions = instructionCount;
+        runBlock(block, until);
 
-        return new Short(upperByte, lowerByte);
+        if (registers.pc() == block.start) {
+            skipPolling(block.polledRegister, startCycles, startInstructions, until);
+        }
     }
 
-    private void adc(Byte left, Byte right, Bit carry) {
+    /**
+     * Runs a block once, compiled if it has been.  A ROM block entered often enough is compiled,
+     * and runs compiled from then on.
+     */
+    private void runBlock(BasicBlock block, long until) {
+        if (block.compiled != null) {
+            block.compiled.run(this, block.handlers, until);
+            return;
+        }
 
-        registers.f.setValue(0);
+        if (++block.executions == COMPILE_THRESHOLD && block.start < 0x8000) {
+            block.compiled = BlockCompiler.compile(block);
+        }
 
-        int lowerResult = left.lowerNibble() + right.lowerNibble() + carry.intValue();
+        for (int i = 0; i < block.length; i++) {
+            startInstruction(block.next[i], block.cycles[i]);
+            block.handlers[i].execute(block.immediates[i]);
 
-        if ((lowerResult & 0x10) == 0x10) {
-            registers.f.hf(ONE);
+            if (!finishInstruction(block.next[i], until) || block.invalid) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Skips iterations of a polling loop that has just gone round once, starting at startCycles
+     * with the read of the polled register.  Until the register changes every iteration reads the
+     * same value and goes round again, so whole iterations are added to the cycle and instruction
+     * counts without being run.  LY only changes on the line event, no earlier than until, and
+     * STAT also changes when the LCD moves on to the next mode of a visible line.
+     */
+    private void skipPolling(int register, long startCycles, long startInstructions, long until) {
+        if (ieDelay != -1 || (interruptController.isInterruptMasterEnable() && (interruptFlags() & interruptEnable()) != 0)) {
+            return;
         }
 
-        int result = left.intValue() + right.intValue() + carry.intValue();
+        long now = cycleCounter.getCount();
+        long period = now - startCycles;
+        long iterations = (until - now) / period;
 
-        if ((result & 0x100) == 0x100) {
-            registers.f.cf(ONE);
+        if (register == LcdController.STAT_ADDRESS && ioHandler.registerRead(LcdController.LY_ADDRESS) < GraphicsChip.HEIGHT) {
+            long change = nextModeChange(startCycles);
+            iterations = Math.min(iterations, Math.max(0, (change - now + period - 1) / period));
         }
 
-        if ((result & 0xFF) == 0) {
-            registers.f.zf(ONE);
+        if (iterations > 0) {
+            cycleCounter.add(iterations * period);
+            instructionCount += iterations * (instructionCount - startInstructions);
         }
+    }
+
+    /**
+     * The cycle at which the STAT mode read at the given cycle of a visible line next changes,
+     * or {@link Scheduler#NEVER} when it only changes with the line
+     */
+    private long nextModeChange(long cycle) {
+        long lineCycles = cycle - lineStart;
 
-        left.setValue(result);
+        if (lineCycles < GraphicsConstants.OAM_SEARCH_CYCLES) {
+            return lineStart + GraphicsConstants.OAM_SEARCH_CYCLES;
+        }
+        if (lineCycles < GraphicsConstants.OAM_SEARCH_CYCLES + GraphicsConstants.PIXEL_TRANSFER_CYCLES) {
+            return lineStart + GraphicsConstants.OAM_SEARCH_CYCLES + GraphicsConstants.PIXEL_TRANSFER_CYCLES;
+        }
+        return Scheduler.NEVER;
     }
 
-    private void add(Byte left, Byte right) {
-        adc(left, right, ZERO);
+    /**
+     * Moves the program counter past an instruction about to be executed from a block
+     */
+    void startInstruction(int next, int cycles) {
+        registers.pc(next);
+        instructionCount++;
+        this.cycles = cycles;
     }
 
-    private void inc(Byte left) {
-        add(left, new Byte(1));
+    /**
+     * Completes an instruction executed from a block.  Returns whether the block carries on: not
+     * if a taken branch or an interrupt moved the program counter, or the cycle count reached
+     * until.
+     */
+    boolean finishInstruction(int next, long until) {
+        serviceInterrupts();
+        cycleCounter.add(cycles);
+
+        return registers.pc() == next && cycleCounter.getCount() < until;
     }
 
-    private void sbc(Byte left, Byte right, Bit carry) {
-        registers.f.nf(ONE);
+    /**
+     * Handles the delay slot of EI and dispatches a pending interrupt, after each instruction
+     */
+    private void serviceInterrupts() {
+        if (ieDelay != -1) {
 
-        int lowerResult = left.lowerNibble() - right.lowerNibble() - carry.intValue();
+            if (ieDelay > 0) {
+                ieDelay--;
+            } else {
+                interruptController.setInterruptMasterEnable(true);
+                ieDelay = -1;
+            }
 
-        if ((lowerResult & 0x10) == 0x10) {
-            registers.f.hf(ONE);
-        } else {
-            registers.f.hf(ZERO);
         }
 
-        int result = left.intValue() - right.intValue() - carry.intValue();
-
-        if ((result & 0x100) == 0x100) {
-            registers.f.cf(ONE);
-        } else {
-            registers.f.cf(ZERO);
+        if (interruptController.isInterruptMasterEnable()) {
+            checkInterrupts();
         }
+    }
 
-        if ((result & 0xFF) == 0) {
-            registers.f.zf(ONE);
-        } else {
-            registers.f.zf(ZERO);
+    private void call(boolean condition, int address) {
+        if (condition) {
+            push(registers.pc());
+            registers.pc(address);
+            cycles += Cycles.CALL_TAKEN;
         }
+    }
 
-        left.setValue(result);
+    private void jp(boolean condition, int address) {
+        if (condition) {
+            registers.pc(address);
+            cycles += Cycles.JP_TAKEN;
+        }
     }
 
-    private void sub(Byte left, Byte right) {
-        sbc(left, right, ZERO);
+    private void ret(boolean condition) {
+        if (condition) {
+            registers.pc(pop());
+            cycles += Cycles.RET_TAKEN;
+        }
     }
 
-    private void cp(Byte left, Byte right) {
-        int originalValue = left.intValue();
-        sub(left, right);
-        left.setValue(originalValue);
+    private int pop() {
+        int sp = registers.sp();
+        int lowerByte = readByte(sp);
+        int upperByte = readByte((sp + 1) & 0xFFFF);
+        registers.sp(sp + 2);
+
+        return (upperByte << 8) | lowerByte;
     }
 
-    private void dec(Byte left) {
-        sub(left, new Byte(1));
+    private void push(int data) {
+        int sp = (registers.sp() - 1) & 0xFFFF;
+        writeByte(sp, data >> 8);
+        sp = (sp - 1) & 0xFFFF;
+        writeByte(sp, data & 0xFF);
+        registers.sp(sp);
     }
 
-    private void or(Byte left, Byte right) {
-        int result = left.intValue() | right.intValue();
+    private void jr(boolean condition, int offset) {
+        if (condition) {
+            registers.pc(add16(registers.pc(), (byte) offset & 0xFFFF));
+            cycles += Cycles.JR_TAKEN;
+        }
+    }
 
-        registers.f.setValue(0);
+    private void rst(int address) {
+        push(registers.pc());
+        registers.pc(address);
+    }
 
-        if (result == 0) {
-            registers.f.zf(ONE);
+    /**
+     * Reads an immediate operand of the given length in bytes, stored low byte first
+     */
+    private int readImmediate(int address, int length) {
+        switch (length) {
+            case 1:
+                return readByte(address & 0xFFFF);
+            case 2:
+                return (readByte((address + 1) & 0xFFFF) << 8) | readByte(address & 0xFFFF);
+            default:
+                return 0;
         }
+    }
 
-        left.setValue(result);
+    private int adc(int left, int right, int carry) {
+        int result = left + right + carry;
+        registers.addFlags(left, right, result);
+        return result & 0xFF;
     }
 
-    private void xor(Byte left, Byte right) {
-        int result = left.intValue() ^ right.intValue();
+    private int add(int left, int right) {
+        return adc(left, right, 0);
+    }
 
-        registers.f.setValue(0);
+    private int inc(int left) {
+        return add(left, 1);
+    }
 
-        if (result == 0) {
-            registers.f.zf(ONE);
-        }
+    private int sbc(int left, int right, int carry) {
+        int result = left - right - carry;
+        registers.subtractFlags(left, right, result);
+        return result & 0xFF;
+    }
+
+    private int sub(int left, int right) {
+        return sbc(left, right, 0);
+    }
 
-        left.setValue(result);
+    private void cp(int left, int right) {
+        sub(left, right);
+    }
+
+    private int dec(int left) {
+        return sub(left, 1);
     }
 
-    private void and(Byte left, Byte right) {
-        int result = left.intValue() & right.intValue();
+    private int or(int left, int right) {
+        int result = left | right;
+        registers.f(result == 0 ? ZERO_FLAG : 0);
+        return result;
+    }
 
-        registers.f.nf(ZERO);
-        registers.f.hf(ONE);
-        registers.f.cf(ZERO);
+    private int xor(int left, int right) {
+        int result = left ^ right;
+        registers.f(result == 0 ? ZERO_FLAG : 0);
+        return result;
+    }
 
-        if (result == 0) {
-            registers.f.zf(ONE);
-        } else {
-            registers.f.zf(ZERO);
+    private int and(int left, int right) {
+        int result = left & right;
+        registers.f(result == 0 ? ZERO_FLAG | HALF_CARRY_FLAG : HALF_CARRY_FLAG);
+        return result;
+    }
+
+    private void bit(int bitNumber, int data) {
+        int flags = (registers.f() & CARRY_FLAG) | HALF_CARRY_FLAG;
+
+        if ((data & (0x01 << bitNumber)) == 0) {
+            flags |= ZERO_FLAG;
         }
 
-        left.setValue(result);
+        registers.f(flags);
+    }
+
+    /**
+     * Sets the flags for a shift or rotate: N and H cleared, C from the bit shifted out and Z
+     * from the result
+     */
+    private int shifted(int result, int carry) {
+        result &= 0xFF;
+        registers.f((result == 0 ? ZERO_FLAG : 0) | (carry != 0 ? CARRY_FLAG : 0));
+        return result;
     }
 
     /**
@@ -1432,23 +1391,10 @@ public class Cpu implements ReadableWritable {
      * ╚══│ CF │<═══│ 7 │ <═════ │ 0 │<══╝
      * └────┘    └───┴────────┴───┘
      */
-    private void rl(Byte operand, Bit carry) {
-        int result = ((operand.intValue() << 1) | carry.intValue()) & 0xFF;
-
-        registers.f.nf(ZERO);
-        registers.f.hf(ZERO);
-        registers.f.cf(operand.getBit(7));
-        registers.f.setZeroFlagForResult(result);
-
-        operand.setValue(result);
-    }
-
-    private void rla(Byte operand) {
-        rl(operand, operand.getBit(7));
-        registers.f.zf(ZERO);
+    private int rl(int operand, int carry) {
+        return shifted((operand << 1) | carry, operand & 0x80);
     }
 
-
     /**
      * RLC
      * <p>
@@ -1457,13 +1403,14 @@ public class Cpu implements ReadableWritable {
      * │ CF │<═╩═│ 7 │ <═════ │ 0 │<══╝
      * └────┘    └───┴────────┴───┘
      */
-    private void rlc(Byte operand) {
-        rl(operand, operand.getBit(7));
+    private int rlc(int operand) {
+        return rl(operand, operand >> 7);
     }
 
-    private void rlca(Byte operand) {
-        rlc(operand);
-        registers.f.zf(ZERO);
+    private int rlca(int operand) {
+        int result = rlc(operand);
+        registers.f(registers.f() & ~ZERO_FLAG);
+        return result;
     }
 
     /**
@@ -1474,20 +1421,14 @@ public class Cpu implements ReadableWritable {
      * ╚═>│ CF │═══>│ 7 │ ═════> │ 0 │══╝
      * └────┘    └───┴────────┴───┘
      */
-    private void rr(Byte operand, Bit carry) {
-        int result = (carry.intValue() << 7) | (operand.intValue() >> 1);
-
-        registers.f.nf(ZERO);
-        registers.f.hf(ZERO);
-        registers.f.cf(operand.getBit(0));
-        registers.f.setZeroFlagForResult(result);
-
-        operand.setValue(result);
+    private int rr(int operand, int carry) {
+        return shifted((carry << 7) | (operand >> 1), operand & 0x01);
     }
 
-    private void rra(Byte operand, Bit carry) {
-        rr(operand, carry);
-        registers.f.zf(ZERO);
+    private int rra(int operand, int carry) {
+        int result = rr(operand, carry);
+        registers.f(registers.f() & ~ZERO_FLAG);
+        return result;
     }
 
     /**
@@ -1498,13 +1439,14 @@ public class Cpu implements ReadableWritable {
      * ╚═>│ CF │ ╚═>│ 7 │ ═════> │ 0 │═══╝
      * └────┘    └───┴────────┴───┘
      */
-    private void rrc(Byte operand) {
-        rr(operand, operand.getBit(0));
+    private int rrc(int operand) {
+        return rr(operand, operand & 0x01);
     }
 
-    private void rrca(Byte operand) {
-        rrc(operand);
-        registers.f.zf(ZERO);
+    private int rrca(int operand) {
+        int result = rrc(operand);
+        registers.f(registers.f() & ~ZERO_FLAG);
+        return result;
     }
 
     /**
@@ -1514,15 +1456,8 @@ public class Cpu implements ReadableWritable {
      * │ CF │<═══│ 7 │ <═════ │ 0 │<══ 0
      * └────┘    └───┴────────┴───┘
      */
-    private void sla(Byte operand) {
-        int result = operand.intValue() << 1;
-
-        registers.f.nf(ZERO);
-        registers.f.hf(ZERO);
-        registers.f.cf(operand.getBit(7));
-        registers.f.setZeroFlagForResult(result);
-
-        operand.setValue(result);
+    private int sla(int operand) {
+        return rl(operand, 0);
     }
 
     /**
@@ -1533,15 +1468,8 @@ public class Cpu implements ReadableWritable {
      * ╚═>│ 7 │ ═════> │ 0 │═══>│ CF │
      * └───┴────────┴───┘    └────┘
      */
-    private void sra(Byte operand, Bit sign) {
-        int result = (sign.intValue() << 7) | (operand.intValue() >> 1);
-
-        registers.f.nf(ZERO);
-        registers.f.hf(ZERO);
-        registers.f.cf(operand.getBit(0));
-        registers.f.setZeroFlagForResult(result);
-
-        operand.setValue(result);
+    private int sra(int operand) {
+        return rr(operand, operand >> 7);
     }
 
     /**
@@ -1551,39 +1479,31 @@ public class Cpu implements ReadableWritable {
      * 0 ══>│ 7 │ ═════> │ 0 │═══>│ CF │
      * └───┴────────┴───┘    └────┘
      */
-    private void srl(Byte operand) {
-        sra(operand, ZERO);
+    private int srl(int operand) {
+        return rr(operand, 0);
     }
 
-    private void add(Short left, Short right) {
+    private int swap(int operand) {
+        return shifted(((operand & 0x0F) << 4) | ((operand & 0xF0) >> 4), 0);
+    }
 
-        registers.f.nf(ZERO);
+    private int add16(int left, int right) {
+        int flags = registers.f() & ZERO_FLAG;
 
-        int lowerResult = (left.intValue() & 0x0FFF) + (right.intValue() & 0x0FFF);
+        int lowerResult = (left & 0x0FFF) + (right & 0x0FFF);
 
         if ((lowerResult & 0x1000) == 0x1000) {
-            registers.f.hf(ONE);
-        } else {
-            registers.f.hf(ZERO);
+            flags |= HALF_CARRY_FLAG;
         }
 
-        int result = left.intValue() + right.intValue();
+        int result = left + right;
 
         if ((result & 0x10000) == 0x10000) {
-            registers.f.cf(ONE);
-        } else {
-            registers.f.cf(ZERO);
+            flags |= CARRY_FLAG;
         }
 
-        left.setValue(result);
-    }
-
-    private void load(Byte destination, Byte source) {
-        destination.setValue(source.intValue());
-    }
-
-    private void load(Short destination, Short source) {
-        destination.setValue(source.intValue());
+        registers.f(flags);
+        return result & 0xFFFF;
     }
 
 }
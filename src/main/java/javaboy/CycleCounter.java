@@ -0,0 +1,28 @@
+package javaboy;
+
+class CycleCounter {
+
+    /**
+     * The number of clock cycles that have elapsed since the
+     * last reset
+     */
+    private long count = 0;
+
+    public CycleCounter() {
+        reset();
+    }
+
+    void reset() {
+        count = 0;
+    }
+
+
+    public long getCount() {
+        return count;
+    }
+
+
+    public void add(long cycles) {
+        count += cycles;
+    }
+}
@@ -4,5 +4,9 @@ public class Divider {
 
     public static final int DIV_ADDRESS = 0xFF04;
 
+    /**
+     * DIV counts up at 16384 Hz
+     */
+    public static final int CYCLES_PER_DIV = 256;
 
 }
@@ -2,21 +2,19 @@ package javaboy;
 
 class GraphicsConstants {
 
-    public static final int INSTRS_PER_VBLANK = 9000;
-
     /**
-     * Used to set the speed of the emulator.  This controls how
-     * many instructions are executed for each horizontal line scanned
-     * on the screen.  Multiply by 154 to find out how many instructions
-     * per frame.
+     * Clock cycles taken to scan one line, including horizontal blanking.  A frame is 154 lines,
+     * the last 10 of which are vertical blanking.
      */
-    private static final int BASE_INSTRS_PER_HBLANK = 60;
-    public static final int INSTRS_PER_HBLANK = BASE_INSTRS_PER_HBLANK;
+    public static final int CYCLES_PER_LINE = 456;
 
     /**
-     * Used to set the speed of DIV increments
+     * Clock cycles at the start of each visible line spent searching OAM (mode 2), followed by
+     * the transfer of pixels to the LCD (mode 3).  The rest of the line is HBlank (mode 0).
      */
-    public static final short BASE_INSTRUCTIONS_PER_DIV = 33;
+    public static final int OAM_SEARCH_CYCLES = 80;
+    public static final int PIXEL_TRANSFER_CYCLES = 172;
 
+    public static final int LINES_PER_FRAME = 154;
 
 }
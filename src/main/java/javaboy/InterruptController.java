@@ -21,6 +21,30 @@ public class InterruptController implements ReadableWritable {
         this.interruptMasterEnable = interruptMasterEnable;
     }
 
+    public int readByte(int address) {
+        switch (address) {
+            case FLAGS_ADDRESS:
+                return flags.intValue();
+            case ENABLE_ADDRESS:
+                return enable.intValue();
+            default:
+                throw new IllegalArgumentException("Address [" + address + "]");
+        }
+    }
+
+    public void writeByte(int address, int data) {
+        switch (address) {
+            case FLAGS_ADDRESS:
+                flags.setValue(data);
+                break;
+            case ENABLE_ADDRESS:
+                enable.setValue(data);
+                break;
+            default:
+                throw new IllegalArgumentException("Address [" + address + "]");
+        }
+    }
+
     @Override
     public Byte read(Short address) {
         switch (address.intValue()) {
@@ -35,16 +59,7 @@ public class InterruptController implements ReadableWritable {
 
     @Override
     public void write(Short address, Byte data) {
-        switch (address.intValue()) {
-            case FLAGS_ADDRESS:
-                flags.setValue(data.intValue());
-                break;
-            case ENABLE_ADDRESS:
-                enable.setValue(data.intValue());
-                break;
-            default:
-                throw new IllegalArgumentException("Address [" + address.intValue() + "]");
-        }
+        writeByte(address.intValue(), data.intValue());
     }
 
     public enum Interrupt {
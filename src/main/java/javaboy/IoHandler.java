@@ -8,109 +8,100 @@ import javaboy.lang.Short;
 
 /**
  * This class handles all the memory mapped IO in the range
- * FF00 - FF4F.  It also handles high memory accessed by the
- * LDH instruction which is located at 0xFF50 - 0xFFFF.
+ * FF00 - FF7F, and the interrupt enable register at 0xFFFF.
+ * High memory at 0xFF80 - 0xFFFE, also accessed by the LDH
+ * instruction, is held by the MemoryController.
  */
 
 public class IoHandler implements ReadableWritable {
 
-    private static final Short TIMER_DIV_ADDRESS = new Short(0xFF04);
-    private static final Short TIMER_TAC_ADDRESS = new Short(0xFF07);
-    private static final Short LCDC_ADDRESS = new Short(0xFF40);
-    private static final Short LCDC_STATUS_ADDRESS = new Short(0xFF41);
-    private static final Short DMA_ADDRESS = new Short(0xFF46);
-    private static final Short BACKGROUND_WINDOW_PALETTE_ADDRESS = new Short(0xFF47);
-    private static final Short OBJECT_ONE_PALETTE_ADDRESS = new Short(0xFF48);
-    private static final Short OBJECT_TWO_PALETTE_ADDRESS = new Short(0xFF49);
-
     private final Memory io = new Memory(0xFF00, 0x100);
     private final Cpu cpu;
-    private final InstructionCounter instructionCounter;
     private final InterruptController interruptController;
 
-    IoHandler(Cpu cpu, InstructionCounter instructionCounter, InterruptController interruptController) {
+    IoHandler(Cpu cpu, InterruptController interruptController) {
         this.cpu = cpu;
-        this.instructionCounter = instructionCounter;
         this.interruptController = interruptController;
         reset();
     }
 
     void reset() {
-        write(LCDC_ADDRESS, new Byte(0x91));
-        write(new Short(InterruptController.FLAGS_ADDRESS), new Byte(0x01));
+        ioWrite(LcdController.LCDC_ADDRESS - 0xFF00, 0x91);
+        interruptController.writeByte(InterruptController.FLAGS_ADDRESS, 0x01);
     }
 
-    public short ioRead(int num) {
+    public int ioRead(int num) {
 
-        Short address = new Short(0xFF00 + num);
+        int address = 0xFF00 + num;
 
         switch (num) {
             case 0x41:         // LCDSTAT
 
                 int output = 0;
 
-                if (io.read(new Short(0xFF44)).equals(io.read(new Short(0xFF45)))) {
+                if (io.readByte(0xFF44) == io.readByte(0xFF45)) {
                     output |= 4;
                 }
 
-                int cyclePos = instructionCounter.getCount() % GraphicsConstants.INSTRS_PER_HBLANK;
-                int sectionLength = GraphicsConstants.INSTRS_PER_HBLANK / 6;
+                int cyclePos = cpu.getLineCycles();
 
-                if (io.read(new Short(0xFF44)).intValue() > GraphicsChip.HEIGHT) {
+                if (io.readByte(0xFF44) >= GraphicsChip.HEIGHT) {
+                    // Mode 1
                     output |= 1;
                 } else {
-                    if (cyclePos <= sectionLength * 3) {
-                        // Mode 0
-                    } else if (cyclePos <= sectionLength * 4) {
+                    if (cyclePos < GraphicsConstants.OAM_SEARCH_CYCLES) {
                         // Mode 2
                         output |= 2;
-                    } else {
+                    } else if (cyclePos < GraphicsConstants.OAM_SEARCH_CYCLES + GraphicsConstants.PIXEL_TRANSFER_CYCLES) {
+                        // Mode 3
                         output |= 3;
+                    } else {
+                        // Mode 0
                     }
                 }
-                return (byte) (output | (io.read(LCDC_STATUS_ADDRESS).intValue() & 0xF8));
+                return (output | (io.readByte(0xFF41) & 0xF8));
+
+            case 0x00:
+                return cpu.joypad.read();
+
+            case 0x04:
+                return cpu.readDivider();
+            case 0x05:
+                return cpu.readTima();
 
             case 0x0F:
             case 0xFF:
-                return (byte) interruptController.read(address).intValue();
+                return interruptController.readByte(address);
             default:
-                return (short) io.read(address).intValue();
+                return io.readByte(address);
         }
     }
 
-    public void ioWrite(int num, short data) {
+    public void ioWrite(int num, int data) {
 
-        Short address = new Short(0xFF00 + num);
-        Byte dataByte = new Byte(data);
+        int address = 0xFF00 + num;
 
         switch (num) {
 
-            // DIV
+            // P1, selects the keys to read
+            case 0x00:
+                cpu.joypad.write(data);
+                break;
+
+            // DIV, any write resets it
             case 0x04:
-                io.write(TIMER_DIV_ADDRESS, new Byte(data));
+                cpu.resetDivider();
+                break;
+
+            // TIMA
+            case 0x05:
+                cpu.writeTima(data);
                 break;
 
             // TAC
             case 0x07:
-                cpu.timaEnabled = (data & 0x04) != 0;
-
-                int instrsPerSecond = GraphicsConstants.INSTRS_PER_VBLANK * 60;
-                int clockFrequency = (data & 0x03);
-
-                switch (clockFrequency) {
-                    case 0:
-                        cpu.instructionsPerTima = (instrsPerSecond / 4096);
-                        break;
-                    case 1:
-                        cpu.instructionsPerTima = (instrsPerSecond / 262144);
-                        break;
-                    case 2:
-                        cpu.instructionsPerTima = (instrsPerSecond / 65536);
-                        break;
-                    case 3:
-                        cpu.instructionsPerTima = (instrsPerSecond / 16384);
-                        break;
-                }
+                cpu.writeTac(data);
+                io.writeByte(Timer.TAC_ADDRESS, data);
                 break;
 
 
@@ -118,6 +109,9 @@ public class IoHandler implements ReadableWritable {
                 // LCDC
                 cpu.graphicsChip.bgEnabled = true;
 
+                // BIT 6
+                cpu.graphicsChip.hiWindowTileMapAddress = (data & 0x40) == 0x40;
+
                 // BIT 5
                 cpu.graphicsChip.winEnabled = (data & 0x20) == 0x20;
 
@@ -136,76 +130,89 @@ public class IoHandler implements ReadableWritable {
                     cpu.graphicsChip.bgEnabled = false;
                     cpu.graphicsChip.winEnabled = false;
                 }
-                io.write(LCDC_ADDRESS, new Byte(data));
+                io.writeByte(LcdController.LCDC_ADDRESS, data);
+                break;
+
+            case 0x42:           // FF42 - SCY
+                cpu.graphicsChip.scrollY = data;
+                io.writeByte(address, data);
+                break;
+            case 0x43:           // FF43 - SCX
+                cpu.graphicsChip.scrollX = data;
+                io.writeByte(address, data);
+                break;
+            case 0x4A:           // FF4A - WY
+                cpu.graphicsChip.windowY = data;
+                io.writeByte(address, data);
+                break;
+            case 0x4B:           // FF4B - WX
+                cpu.graphicsChip.windowX = data;
+                io.writeByte(address, data);
                 break;
 
             // DMA
             case 0x46:
-                int sourceAddress = (data << 8);
-
-                // This could be sped up using System.arrayCopy, but hey.
-                for (int i = 0x00; i < 0xA0; i++) {
-                    cpu.write(new Short(0xFE00 + i), cpu.read(new Short(sourceAddress + i)));
-                }
+                cpu.copyMemory(data << 8, 0xFE00, 0xA0);
                 // This is meant to be run at the same time as the CPU is executing
                 // instructions, but I don't think it's crucial.
                 break;
 
             case 0x47:           // FF47 - BKG and WIN palette
                 cpu.graphicsChip.backgroundPalette.decodePalette(data);
-                if (io.read(address).intValue() != (byte) data) {
-                    io.write(address, dataByte);
-                    cpu.graphicsChip.invalidateAll(GraphicsChip.TILE_BACKGROUND);
-                }
+                io.writeByte(address, data);
                 break;
             case 0x48:           // FF48 - OBJ1 palette
                 cpu.graphicsChip.obj1Palette.decodePalette(data);
-                if (io.read(address).intValue() != (byte) data) {
-                    io.write(address, dataByte);
-                    cpu.graphicsChip.invalidateAll(GraphicsChip.TILE_OBJECT_1);
-                }
+                io.writeByte(address, data);
                 break;
             case 0x49:           // FF49 - OBJ2 palette
                 cpu.graphicsChip.obj2Palette.decodePalette(data);
-                if (io.read(address).intValue() != (byte) data) {
-                    io.write(address, dataByte);
-                    cpu.graphicsChip.invalidateAll(GraphicsChip.TILE_OBJECT_2);
-                }
+                io.writeByte(address, data);
                 break;
 
             case 0x55:
 
 
-                if (((io.read(new Short(0xFF55)).intValue() & 0x80) == 0) && ((data & 0x80) == 0)) {
-                    int dmaSrc = ((io.read(new Short(0xFF51)).intValue()) << 8) +
-                            (io.read(new Short(0xFF52)).intValue() & 0xF0);
-                    int dmaDst = ((io.read(new Short(0xFF53)).intValue() & 0x1F) << 8) +
-                            (io.read(new Short(0xFF54)).intValue() & 0xF0) + 0x8000;
-                    int dmaLen = ((Shorts.unsigned(data) & 0x7F) * 16) + 16;
+                if (((io.readByte(0xFF55) & 0x80) == 0) && ((data & 0x80) == 0)) {
+                    int dmaSrc = (io.readByte(0xFF51) << 8) +
+                            (io.readByte(0xFF52) & 0xF0);
+                    int dmaDst = ((io.readByte(0xFF53) & 0x1F) << 8) +
+                            (io.readByte(0xFF54) & 0xF0) + 0x8000;
+                    int dmaLen = ((data & 0x7F) * 16) + 16;
 
                     if (dmaLen > 2048) dmaLen = 2048;
 
-                    for (int r = 0; r < dmaLen; r++) {
-                        Short destination = new Short(dmaDst + r);
-                        Short source = new Short(dmaSrc + r);
-                        cpu.write(destination, cpu.read(source));
-                    }
+                    cpu.copyMemory(dmaSrc, dmaDst, dmaLen);
                 }
 
-                io.write(new Short(0xFF55), dataByte);
+                io.writeByte(0xFF55, data);
                 break;
 
             case 0x0F:
             case 0xFF:
-                interruptController.write(address, dataByte);
+                interruptController.writeByte(address, data);
                 break;
             default:
-                io.write(address, dataByte);
+                io.writeByte(address, data);
                 break;
         }
 
     }
 
+    /**
+     * Reads a register without the side effects of {@link #ioRead(int)}
+     */
+    int registerRead(int address) {
+        return io.readByte(address);
+    }
+
+    /**
+     * Writes a register without the side effects of {@link #ioWrite(int, int)}
+     */
+    void registerWrite(int address, int data) {
+        io.writeByte(address, data & 0xFF);
+    }
+
     @Override
     public Byte read(Short address) {
         switch (address.intValue()) {
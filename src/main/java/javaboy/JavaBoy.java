@@ -1,21 +1,34 @@
 package javaboy;
 
+import javaboy.graphics.DirtyRegion;
+import javaboy.graphics.Display;
 import javaboy.graphics.GraphicsChip;
+import javaboy.rom.loader.RomLoader;
+import javaboy.timing.FramePacer;
 import org.pmw.tinylog.Logger;
 
 import java.awt.*;
+import java.awt.image.DirectColorModel;
+import java.awt.image.MemoryImageSource;
 
-class JavaBoy extends Frame {
+class JavaBoy extends Frame implements Display {
 
     private final Cpu cpu;
 
+    /**
+     * Pixels of the last completed frame, shown through the screen image
+     */
+    private final int[] pixels = new int[GraphicsChip.WIDTH * GraphicsChip.HEIGHT];
+    private final MemoryImageSource source;
+    private final Image screen;
+
     /**
      * When running as an applet, updates the screen when necessary
      */
     public void paint(Graphics graphics) {
-        if (cpu == null) return;
+        if (screen == null) return;
 
-        cpu.graphicsChip.draw(graphics, 0, 0);
+        graphics.drawImage(screen, 0, 0, null);
     }
 
     @Override
@@ -23,13 +36,43 @@ class JavaBoy extends Frame {
         paint(graphics);
     }
 
-    private JavaBoy() {
+    @Override
+    public void frameReady(int[] frameBuffer) {
+        System.arraycopy(frameBuffer, 0, pixels, 0, pixels.length);
+        source.newPixels();
+        repaint();
+    }
+
+    @Override
+    public void frameReady(int[] frameBuffer, DirtyRegion dirtyRegion) {
+        if (dirtyRegion.isEmpty()) {
+            return;
+        }
+
+        for (int line = dirtyRegion.getTop(); line < dirtyRegion.getTop() + dirtyRegion.getHeight(); line++) {
+            int start = line * GraphicsChip.WIDTH + dirtyRegion.getLineLeft(line);
+            System.arraycopy(frameBuffer, start, pixels, start, Math.max(0, dirtyRegion.getLineRight(line) - dirtyRegion.getLineLeft(line)));
+        }
+
+        source.newPixels(dirtyRegion.getLeft(), dirtyRegion.getTop(), dirtyRegion.getWidth(), dirtyRegion.getHeight());
+        repaint();
+    }
+
+    private JavaBoy(String romFile, FramePacer framePacer) {
         Logger.debug("JavaBoy (tm) Version 0.92 (c) 2005 Neil Millstone (application)");
 
+        source = new MemoryImageSource(GraphicsChip.WIDTH, GraphicsChip.HEIGHT,
+                new DirectColorModel(32, 0x00FF0000, 0x0000FF00, 0x000000FF, 0xFF000000),
+                pixels, 0, GraphicsChip.WIDTH);
+        source.setAnimated(true);
+        screen = createImage(source);
+
         setupFrame();
 
-        cpu = new Cpu(this);
-        initializeCpu();
+        cpu = new Cpu(RomLoader.loadRom(romFile));
+        cpu.setDisplay(this);
+        cpu.setFramePacer(framePacer);
+        initializeCpu(cpu);
     }
 
     private void setupFrame() {
@@ -39,18 +82,46 @@ class JavaBoy extends Frame {
         requestFocus();
     }
 
-    private void initializeCpu() {
+    private static void initializeCpu(Cpu cpu) {
         Logger.debug("CPU Reset");
 
         cpu.reset();
         cpu.execute();
     }
 
+    /**
+     * Runs the ROM given as the last argument, bgblogo.gb by default.  With --headless no window
+     * is opened.  --speed=N runs at N times real time and --speed=0 runs unlimited, which is the
+     * default when headless.
+     */
     public static void main(String[] args) {
-        new JavaBoy();
+        boolean headless = false;
+        Double speed = null;
+        String romFile = "bgblogo.gb";
+
+        for (String arg : args) {
+            if (arg.equals("--headless")) {
+                headless = true;
+            } else if (arg.startsWith("--speed=")) {
+                speed = Double.parseDouble(arg.substring("--speed=".length()));
+            } else {
+                romFile = arg;
+            }
+        }
+
+        headless |= GraphicsEnvironment.isHeadless();
+        if (speed == null) {
+            speed = headless ? 0.0 : 1.0;
+        }
+        FramePacer framePacer = speed == 0 ? FramePacer.unlimited() : FramePacer.speed(speed);
+
+        if (headless) {
+            Cpu cpu = new Cpu(RomLoader.loadRom(romFile));
+            cpu.setFramePacer(framePacer);
+            initializeCpu(cpu);
+        } else {
+            new JavaBoy(romFile, framePacer);
+        }
     }
 
 }
-
-
-
@@ -1,9 +1,84 @@
 package javaboy;
 
+/**
+ * The joypad, read through P1.  The program selects the direction keys (bit 4 low) and/or the
+ * buttons (bit 5 low) and reads the selected keys in the low nibble, where a pressed key reads
+ * as 0.
+ */
 public class JoypadController {
 
     public static final int P1_ADDRESS = 0xFF00;
 
+    private static final int SELECT_DIRECTIONS = 0x10;
+    private static final int SELECT_BUTTONS = 0x20;
 
+    /**
+     * Keys currently held down, a mask of {@link Button} bits
+     */
+    private int pressed;
 
+    /**
+     * The select bits last written to P1
+     */
+    private int select = SELECT_DIRECTIONS | SELECT_BUTTONS;
+
+    public int read() {
+        return 0xC0 | select | (~selectedKeys(pressed) & 0x0F);
+    }
+
+    public void write(int data) {
+        select = data & (SELECT_DIRECTIONS | SELECT_BUTTONS);
+    }
+
+    /**
+     * Sets the keys held down.  Returns true if a key that was not held before now reads as
+     * pressed, which raises the joypad interrupt.
+     */
+    public boolean setPressed(int pressed) {
+        int before = selectedKeys(this.pressed);
+        this.pressed = pressed;
+
+        return (selectedKeys(pressed) & ~before) != 0;
+    }
+
+    public int getPressed() {
+        return pressed;
+    }
+
+    /**
+     * The low nibble of P1 before inversion: the selected keys that are held down
+     */
+    private int selectedKeys(int pressed) {
+        int keys = 0;
+
+        if ((select & SELECT_DIRECTIONS) == 0) {
+            keys |= pressed;
+        }
+        if ((select & SELECT_BUTTONS) == 0) {
+            keys |= pressed >> 4;
+        }
+
+        return keys & 0x0F;
+    }
+
+    public enum Button {
+        RIGHT(0b0000_0001),
+        LEFT(0b0000_0010),
+        UP(0b0000_0100),
+        DOWN(0b0000_1000),
+        A(0b0001_0000),
+        B(0b0010_0000),
+        SELECT(0b0100_0000),
+        START(0b1000_0000);
+
+        private int mask;
+
+        Button(int mask) {
+            this.mask = mask;
+        }
+
+        public int getBitMask() {
+            return mask;
+        }
+    }
 }
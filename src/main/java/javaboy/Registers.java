@@ -1,30 +1,73 @@
 package javaboy;
 
-import javaboy.instruction.BaseOpcode;
 import javaboy.lang.Byte;
 import javaboy.lang.FlagRegister;
 import javaboy.lang.Short;
 
+/**
+ * The CPU register file.  Registers are stored as primitive ints so the CPU can read and
+ * write them without allocating.  The 8-bit registers live in a small array indexed the
+ * same way opcodes encode their operands (B, C, D, E, H, L, (HL), A), with F occupying the
+ * (HL) slot since that operand is never a register.
+ * <p>
+ * The {@link Byte} and {@link Short} fields are thin views over the same storage, kept for
+ * code that still works with the object API.
+ * <p>
+ * The flags set by an 8-bit addition or subtraction are kept as the operands and result of the
+ * operation, and only worked out when F is read.  Reading Z or C on their own, as conditional
+ * branches do, tests the result without working out the rest.
+ */
 public class Registers {
 
-    public final Byte a = new Byte();
-    public final FlagRegister f = new FlagRegister();
+    public static final int B = 0;
+    public static final int C = 1;
+    public static final int D = 2;
+    public static final int E = 3;
+    public static final int H = 4;
+    public static final int L = 5;
+    public static final int F = 6;
+    public static final int A = 7;
+
+    public static final int ZERO_FLAG = 0x80;
+    public static final int SUBTRACT_FLAG = 0x40;
+    public static final int HALF_CARRY_FLAG = 0x20;
+    public static final int CARRY_FLAG = 0x10;
+
+    private final int[] file = new int[8];
+    private int programCounter;
+    private int stackPointer;
+
+    /**
+     * The operation whose flags are pending, and its operands and unmasked result.  While
+     * FLAGS_SET the flags are in the F slot of the register file.
+     */
+    private static final int FLAGS_SET = 0;
+    private static final int FLAGS_ADD = 1;
+    private static final int FLAGS_SUBTRACT = 2;
+
+    private int flagOperation = FLAGS_SET;
+    private int flagLeft;
+    private int flagRight;
+    private int flagResult;
+
+    public final Byte a = new RegisterView(A);
+    public final FlagRegister f = new FlagRegisterView();
     public final Short af = new Short(a, f);
 
-    public final Byte b = new Byte();
-    public final Byte c = new Byte();
+    public final Byte b = new RegisterView(B);
+    public final Byte c = new RegisterView(C);
     public final Short bc = new Short(b, c);
 
-    public final Byte d = new Byte();
-    public final Byte e = new Byte();
+    public final Byte d = new RegisterView(D);
+    public final Byte e = new RegisterView(E);
     public final Short de = new Short(d, e);
 
-    public final Byte h = new Byte();
-    public final Byte l = new Byte();
+    public final Byte h = new RegisterView(H);
+    public final Byte l = new RegisterView(L);
     public final Short hl = new Short(h, l);
 
-    public final Short pc = new Short();
-    public final Short sp = new Short();
+    public final Short pc = new Short(new WordHalfView(false, 8), new WordHalfView(false, 0));
+    public final Short sp = new Short(new WordHalfView(true, 8), new WordHalfView(true, 0));
 
     private final ReadableWritable memory;
 
@@ -32,57 +75,252 @@ public class Registers {
         this.memory = memory;
     }
 
+    /**
+     * Reads an 8-bit register by its index in the register file
+     */
+    public int read(int index) {
+        if (index == F) {
+            return f();
+        }
+        return file[index];
+    }
+
+    /**
+     * Writes an 8-bit register by its index in the register file
+     */
+    public void write(int index, int value) {
+        if (index == F) {
+            f(value);
+        } else {
+            file[index] = value & 0xFF;
+        }
+    }
+
+    public int a() {
+        return file[A];
+    }
+
+    public void a(int value) {
+        file[A] = value & 0xFF;
+    }
+
+    public int f() {
+        if (flagOperation != FLAGS_SET) {
+            setPendingFlags();
+        }
+        return file[F];
+    }
+
+    public void f(int value) {
+        flagOperation = FLAGS_SET;
+        file[F] = value & 0xF0;
+    }
+
+    public int af() {
+        return (file[A] << 8) | f();
+    }
+
+    public void af(int value) {
+        file[A] = (value >> 8) & 0xFF;
+        f(value);
+    }
+
+    /**
+     * Records the flags of an 8-bit addition, left + right + carry = result, without working
+     * them out.  Z is set for a zero result, H and C for carries out of bits 3 and 7.
+     */
+    public void addFlags(int left, int right, int result) {
+        flagOperation = FLAGS_ADD;
+        flagLeft = left;
+        flagRight = right;
+        flagResult = result;
+    }
+
+    /**
+     * Records the flags of an 8-bit subtraction, left - right - carry = result, without working
+     * them out.  N is set, Z for a zero result, H and C for borrows into bits 3 and 7.
+     */
+    public void subtractFlags(int left, int right, int result) {
+        flagOperation = FLAGS_SUBTRACT;
+        flagLeft = left;
+        flagRight = right;
+        flagResult = result;
+    }
+
+    /**
+     * Works out the pending flags into the F slot.  The carry into bit 4 is recovered from the
+     * operands and result, so the carry in does not need to be kept.
+     */
+    private void setPendingFlags() {
+        int flags = flagOperation == FLAGS_SUBTRACT ? SUBTRACT_FLAG : 0;
+
+        if (((flagLeft ^ flagRight ^ flagResult) & 0x10) != 0) {
+            flags |= HALF_CARRY_FLAG;
+        }
+        if ((flagResult & 0x100) != 0) {
+            flags |= CARRY_FLAG;
+        }
+        if ((flagResult & 0xFF) == 0) {
+            flags |= ZERO_FLAG;
+        }
+
+        file[F] = flags;
+        flagOperation = FLAGS_SET;
+    }
+
+    public int bc() {
+        return (file[B] << 8) | file[C];
+    }
+
+    public void bc(int value) {
+        file[B] = (value >> 8) & 0xFF;
+        file[C] = value & 0xFF;
+    }
+
+    public int de() {
+        return (file[D] << 8) | file[E];
+    }
+
+    public void de(int value) {
+        file[D] = (value >> 8) & 0xFF;
+        file[E] = value & 0xFF;
+    }
+
+    public int hl() {
+        return (file[H] << 8) | file[L];
+    }
+
+    public void hl(int value) {
+        file[H] = (value >> 8) & 0xFF;
+        file[L] = value & 0xFF;
+    }
+
+    public int pc() {
+        return programCounter;
+    }
+
+    public void pc(int value) {
+        programCounter = value & 0xFFFF;
+    }
+
+    public int sp() {
+        return stackPointer;
+    }
+
+    public void sp(int value) {
+        stackPointer = value & 0xFFFF;
+    }
+
+    public boolean zf() {
+        if (flagOperation != FLAGS_SET) {
+            return (flagResult & 0xFF) == 0;
+        }
+        return (file[F] & ZERO_FLAG) != 0;
+    }
+
+    public boolean nf() {
+        return (f() & SUBTRACT_FLAG) != 0;
+    }
+
+    public boolean hf() {
+        return (f() & HALF_CARRY_FLAG) != 0;
+    }
+
+    public boolean cf() {
+        if (flagOperation != FLAGS_SET) {
+            return (flagResult & 0x100) != 0;
+        }
+        return (file[F] & CARRY_FLAG) != 0;
+    }
+
+    /**
+     * Returns the carry flag as 0 or 1, ready to be used as an arithmetic operand
+     */
+    public int carry() {
+        return cf() ? 1 : 0;
+    }
+
     public int registerRead(Register register) {
-        switch (register) {
-            case B:
-                return b.intValue();
-            case C:
-                return c.intValue();
-            case D:
-                return d.intValue();
-            case E:
-                return e.intValue();
-            case H:
-                return h.intValue();
-            case L:
-                return l.intValue();
-            case MEM:
-                return memory.read(hl).intValue();
-            case A:
-                return a.intValue();
-            default:
-                throw new IllegalArgumentException();
+        if (register == Register.MEM) {
+            return memory.read(hl).intValue();
         }
+        return file[register.getIndex()];
     }
 
     public void registerWrite(Register register, int data) {
-        switch (register) {
-            case B:
-                b.setValue(data);
-                break;
-            case C:
-                c.setValue(data);
-                break;
-            case D:
-                d.setValue(data);
-                break;
-            case E:
-                e.setValue(data);
-                break;
-            case H:
-                h.setValue(data);
-                break;
-            case L:
-                l.setValue(data);
-                break;
-            case MEM:
-                memory.write(hl, new Byte(data));
-                break;
-            case A:
-                a.setValue(data);
-                break;
-            default:
-                throw new IllegalArgumentException();
+        if (register == Register.MEM) {
+            memory.write(hl, new Byte(data));
+            return;
+        }
+        file[register.getIndex()] = data & 0xFF;
+    }
+
+    /**
+     * Byte view over one 8-bit slot of the register file
+     */
+    private class RegisterView extends Byte {
+
+        private final int index;
+
+        RegisterView(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int intValue() {
+            return file[index];
+        }
+
+        @Override
+        public void setValue(int value) {
+            file[index] = value & 0xFF;
+        }
+    }
+
+    /**
+     * Flag register view over the F slot of the register file
+     */
+    private class FlagRegisterView extends FlagRegister {
+
+        @Override
+        public int intValue() {
+            return f();
+        }
+
+        @Override
+        public void setValue(int value) {
+            f(value);
+        }
+    }
+
+    /**
+     * Byte view over the upper or lower half of the program counter or stack pointer
+     */
+    private class WordHalfView extends Byte {
+
+        private final boolean stack;
+        private final int shift;
+
+        WordHalfView(boolean stack, int shift) {
+            this.stack = stack;
+            this.shift = shift;
+        }
+
+        @Override
+        public int intValue() {
+            return ((stack ? stackPointer : programCounter) >> shift) & 0xFF;
+        }
+
+        @Override
+        public void setValue(int value) {
+            int word = stack ? stackPointer : programCounter;
+            word = (word & ~(0xFF << shift)) | ((value & 0xFF) << shift);
+
+            if (stack) {
+                stackPointer = word;
+            } else {
+                programCounter = word;
+            }
         }
     }
 
@@ -96,6 +334,14 @@ public class Registers {
         L(5),
         MEM(6);
 
+        private static final Register[] REGISTERS = new Register[8];
+
+        static {
+            for (Register item : values()) {
+                REGISTERS[item.getIndex()] = item;
+            }
+        }
+
         private int index;
 
         Register(int index) {
@@ -107,12 +353,10 @@ public class Registers {
         }
 
         public static Register from(int index) {
-            for (Register item: Register.values()) {
-                if (index == item.getIndex()) {
-                    return item;
-                }
+            if ((index & 0xFFFFFFF8) != 0) {
+                throw new IllegalArgumentException();
             }
-            throw new IllegalArgumentException();
+            return REGISTERS[index];
         }
     }
 
@@ -6,4 +6,18 @@ public class Timer {
     public static final int TMA_ADDRESS = 0xFF06;
     public static final int TAC_ADDRESS = 0xFF07;
 
+    /**
+     * Clock cycles per TIMA increment for each TAC clock select value: 4096, 262144, 65536 and
+     * 16384 Hz
+     */
+    private static final int[] CYCLES_PER_TICK = {1024, 16, 64, 256};
+
+    static boolean enabled(int tac) {
+        return (tac & 0x04) != 0;
+    }
+
+    static int cyclesPerTick(int tac) {
+        return CYCLES_PER_TICK[tac & 0x03];
+    }
+
 }
@@ -0,0 +1,176 @@
+package javaboy.benchmark;
+
+import javaboy.Cpu;
+import javaboy.rom.RomImage;
+import javaboy.rom.loader.RomLoader;
+import javaboy.timing.FramePacer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Runs a ROM headless and unpaced for a number of frames and reports how fast it went.  With
+ * the same ROM, input trace and frame count every run executes the same instructions, so the
+ * frame buffer hash identifies the result and the speeds can be compared between builds and
+ * machines.
+ */
+public class BenchmarkRunner {
+
+    private final Cpu cpu;
+    private final InputTrace input;
+
+    public BenchmarkRunner(RomImage rom, InputTrace input) {
+        this.cpu = new Cpu(rom);
+        this.input = input;
+
+        cpu.reset();
+    }
+
+    /**
+     * Runs the given number of frames on the calling thread.  Input trace frames are counted from
+     * power on, so they carry on from any earlier run.
+     */
+    public Result run(int frames) {
+        long startFrames = cpu.getFrameCount();
+        long startInstructions = cpu.getInstructionCount();
+        long startCycles = cpu.getCycleCount();
+        long startAllocated = allocatedBytes();
+        long startTime = System.nanoTime();
+
+        for (int frame = 0; frame < frames; frame++) {
+            cpu.setButtons(input.keysAt(cpu.getFrameCount()));
+            cpu.runFrames(1);
+        }
+
+        long nanos = System.nanoTime() - startTime;
+        long allocated = allocatedBytes();
+
+        return new Result(
+                cpu.getFrameCount() - startFrames,
+                cpu.getInstructionCount() - startInstructions,
+                cpu.getCycleCount() - startCycles,
+                nanos,
+                startAllocated < 0 ? -1 : allocated - startAllocated,
+                Arrays.hashCode(cpu.getFrameBuffer()));
+    }
+
+    /**
+     * Bytes allocated so far by the calling thread, or -1 when the JVM cannot tell
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+            if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()) {
+                return allocation.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Usage: BenchmarkRunner [--frames=N] [--warmup=N] [--input=trace] rom
+     *
+     * Runs the warm up frames, then reports on the measured frames.
+     */
+    public static void main(String[] args) {
+        int frames = 3600;
+        int warmup = 600;
+        InputTrace input = InputTrace.none();
+        String romFile = "bgblogo.gb";
+
+        for (String arg : args) {
+            if (arg.startsWith("--frames=")) {
+                frames = Integer.parseInt(arg.substring("--frames=".length()));
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Integer.parseInt(arg.substring("--warmup=".length()));
+            } else if (arg.startsWith("--input=")) {
+                input = InputTrace.load(arg.substring("--input=".length()));
+            } else {
+                romFile = arg;
+            }
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner(RomLoader.loadRom(romFile), input);
+        runner.run(warmup);
+        System.out.println(runner.run(frames));
+    }
+
+    public static class Result {
+
+        private final long frames;
+        private final long instructions;
+        private final long cycles;
+        private final long nanos;
+        private final long allocatedBytes;
+        private final int frameHash;
+
+        Result(long frames, long instructions, long cycles, long nanos, long allocatedBytes, int frameHash) {
+            this.frames = frames;
+            this.instructions = instructions;
+            this.cycles = cycles;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+            this.frameHash = frameHash;
+        }
+
+        public long getFrames() {
+            return frames;
+        }
+
+        public long getInstructions() {
+            return instructions;
+        }
+
+        public long getCycles() {
+            return cycles;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Bytes allocated by the emulator thread during the run, or -1 when not available
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * Hash of the frame buffer at the end of the run
+         */
+        public int getFrameHash() {
+            return frameHash;
+        }
+
+        public double getFramesPerSecond() {
+            return perSecond(frames);
+        }
+
+        public double getInstructionsPerSecond() {
+            return perSecond(instructions);
+        }
+
+        public double getAllocationRate() {
+            return allocatedBytes < 0 ? -1 : perSecond(allocatedBytes);
+        }
+
+        private double perSecond(long count) {
+            return nanos == 0 ? 0 : count * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Frames:         %d in %.3f s%n", frames, nanos / 1e9) +
+                    String.format("Frames/s:       %.1f (%.1fx real time)%n", getFramesPerSecond(), getFramesPerSecond() / FramePacer.FRAME_RATE) +
+                    String.format("Instructions/s: %.0f%n", getInstructionsPerSecond()) +
+                    String.format("Allocation:     %s%n", allocatedBytes < 0 ? "unavailable" : String.format("%.0f bytes/s", getAllocationRate())) +
+                    String.format("Frame hash:     %08X", frameHash);
+        }
+    }
+
+}
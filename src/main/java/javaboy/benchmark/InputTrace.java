@@ -0,0 +1,94 @@
+package javaboy.benchmark;
+
+import javaboy.JoypadController;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Scripted joypad input, one change per line:
+ *
+ * <pre>
+ * # frame  keys held from that frame on
+ * 120      START
+ * 125      -
+ * 300      RIGHT+A
+ * </pre>
+ *
+ * Keys are {@link JoypadController.Button} names joined with '+', or '-' for none.  Blank lines
+ * and lines starting with '#' are ignored.
+ */
+public class InputTrace {
+
+    private final NavigableMap<Long, Integer> changes;
+
+    private InputTrace(NavigableMap<Long, Integer> changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * A trace with no keys pressed
+     */
+    public static InputTrace none() {
+        return new InputTrace(Collections.emptyNavigableMap());
+    }
+
+    public static InputTrace load(String filepath) {
+        try {
+            return parse(Files.readAllLines(Paths.get(filepath)));
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Cannot load input trace " + filepath, exception);
+        }
+    }
+
+    public static InputTrace parse(List<String> lines) {
+        NavigableMap<Long, Integer> changes = new TreeMap<>();
+
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] fields = line.split("\\s+");
+            if (fields.length != 2) {
+                throw new IllegalArgumentException("Bad input trace line [" + line + "]");
+            }
+
+            try {
+                changes.put(Long.parseLong(fields[0]), parseKeys(fields[1]));
+            } catch (IllegalArgumentException exception) {
+                throw new IllegalArgumentException("Bad input trace line [" + line + "]", exception);
+            }
+        }
+
+        return new InputTrace(changes);
+    }
+
+    private static int parseKeys(String keys) {
+        if (keys.equals("-")) {
+            return 0;
+        }
+
+        int mask = 0;
+        for (String key : keys.split("\\+")) {
+            mask |= JoypadController.Button.valueOf(key.toUpperCase()).getBitMask();
+        }
+        return mask;
+    }
+
+    /**
+     * The keys held during the given frame, a mask of {@link JoypadController.Button} bits
+     */
+    public int keysAt(long frame) {
+        Map.Entry<Long, Integer> change = changes.floorEntry(frame);
+        return change == null ? 0 : change.getValue();
+    }
+
+}
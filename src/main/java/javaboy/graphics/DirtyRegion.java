@@ -0,0 +1,97 @@
+package javaboy.graphics;
+
+import java.util.Arrays;
+
+/**
+ * The part of a frame that differs from the frame delivered before it: which lines changed,
+ * the changed columns of each line, and the bounding rectangle of all changes.  A consumer that
+ * keeps the previous frame only has to copy, encode or upload this part.
+ */
+public class DirtyRegion {
+
+    private final int[] lineLeft = new int[GraphicsChip.HEIGHT];
+    private final int[] lineRight = new int[GraphicsChip.HEIGHT];
+
+    private int left;
+    private int top;
+    private int right;
+    private int bottom;
+
+    DirtyRegion() {
+        clear();
+    }
+
+    /**
+     * Marks columns from (inclusive) to to (exclusive) of a line as changed
+     */
+    void add(int line, int from, int to) {
+        lineLeft[line] = Math.min(lineLeft[line], from);
+        lineRight[line] = Math.max(lineRight[line], to);
+
+        left = Math.min(left, from);
+        right = Math.max(right, to);
+        top = Math.min(top, line);
+        bottom = Math.max(bottom, line + 1);
+    }
+
+    /**
+     * Marks the whole frame as changed
+     */
+    void addAll() {
+        for (int line = 0; line < GraphicsChip.HEIGHT; line++) {
+            add(line, 0, GraphicsChip.WIDTH);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(lineLeft, GraphicsChip.WIDTH);
+        Arrays.fill(lineRight, 0);
+        left = GraphicsChip.WIDTH;
+        top = GraphicsChip.HEIGHT;
+        right = 0;
+        bottom = 0;
+    }
+
+    public boolean isEmpty() {
+        return right <= left;
+    }
+
+    public boolean isLineDirty(int line) {
+        return lineRight[line] > lineLeft[line];
+    }
+
+    /**
+     * First changed column of the line
+     */
+    public int getLineLeft(int line) {
+        return lineLeft[line];
+    }
+
+    /**
+     * Column after the last changed column of the line
+     */
+    public int getLineRight(int line) {
+        return lineRight[line];
+    }
+
+    public int getLeft() {
+        return isEmpty() ? 0 : left;
+    }
+
+    public int getTop() {
+        return isEmpty() ? 0 : top;
+    }
+
+    public int getWidth() {
+        return isEmpty() ? 0 : right - left;
+    }
+
+    public int getHeight() {
+        return isEmpty() ? 0 : bottom - top;
+    }
+
+    @Override
+    public String toString() {
+        return isEmpty() ? "[]" : "[" + left + ", " + top + " " + (right - left) + "x" + (bottom - top) + "]";
+    }
+}
@@ -0,0 +1,23 @@
+package javaboy.graphics;
+
+/**
+ * Receives each completed frame.  Without a display the emulator runs headless.
+ */
+public interface Display {
+
+    /**
+     * Called on the emulation thread when a frame is complete.  The frame buffer holds
+     * {@link GraphicsChip#WIDTH} x {@link GraphicsChip#HEIGHT} ARGB pixels, row by row, and is
+     * only valid for the duration of the call.
+     */
+    void frameReady(int[] frameBuffer);
+
+    /**
+     * Called instead of {@link #frameReady(int[])} with the region that changed since the last
+     * frame delivered, so that only that region needs to be processed.  The region is only valid
+     * for the duration of the call.
+     */
+    default void frameReady(int[] frameBuffer, DirtyRegion dirtyRegion) {
+        frameReady(frameBuffer);
+    }
+}
@@ -1,10 +1,5 @@
 package javaboy.graphics;
 
-import javaboy.lang.Byte;
-
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * This class represents a palette.  There can be three
  * palettes, one for the background and window, and two
@@ -13,47 +8,64 @@ import java.util.List;
 
 public class GameboyPalette {
 
+    /**
+     * Default RGB colour values
+     */
+    private static final int[] COLOURS = {0xFFFFFFFF, 0xFFAAAAAA, 0xFF555555, 0xFF000000};
+
     /**
      * Data for which colour maps to which RGB value
      */
-    private final List<Byte> data = new ArrayList<>(4);
+    private final int[] data = new int[4];
 
     /**
-     * Default RGB colour values
+     * RGB value of each colour number, kept in step with data
      */
-    private final int[] colours = {0xFFFFFFFF, 0xFFAAAAAA, 0xFF555555, 0xFF000000};
+    private final int[] rgb = new int[4];
 
     /**
      * Create a palette with the specified colour mappings
      */
     GameboyPalette(int c1, int c2, int c3, int c4) {
-        data.add(0, new Byte(c1));
-        data.add(1, new Byte(c2));
-        data.add(2, new Byte(c3));
-        data.add(3, new Byte(c4));
+        setEntry(0, c1);
+        setEntry(1, c2);
+        setEntry(2, c3);
+        setEntry(3, c4);
+    }
+
+    private void setEntry(int entry, int colour) {
+        data[entry] = colour;
+        rgb[entry] = COLOURS[colour];
     }
 
     /**
      * Set the palette from the internal Gameboy format
      */
     public void decodePalette(int palette) {
-        data.add(0, new Byte((palette & 0x03)));
-        data.add(1, new Byte((palette & 0x0C) >> 2));
-        data.add(2, new Byte((palette & 0x30) >> 4));
-        data.add(3, new Byte((palette & 0xC0) >> 6));
+        setEntry(0, palette & 0x03);
+        setEntry(1, (palette & 0x0C) >> 2);
+        setEntry(2, (palette & 0x30) >> 4);
+        setEntry(3, (palette & 0xC0) >> 6);
     }
 
     /**
      * Get the RGB colour value for a specific colour entry
      */
     int getRgbEntry(int entry) {
-        return colours[data.get(entry).intValue()];
+        return rgb[entry];
+    }
+
+    /**
+     * RGB colour values of all four entries, for looking up colour numbers while drawing
+     */
+    int[] getRgbEntries() {
+        return rgb;
     }
 
     /**
      * Get the colour number for a specific colour entry
      */
     int getEntry(int entry) {
-        return data.get(entry).intValue();
+        return data[entry];
     }
 }
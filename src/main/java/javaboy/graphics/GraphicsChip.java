@@ -1,40 +1,19 @@
 package javaboy.graphics;
 
 import javaboy.Cpu;
-import javaboy.Shorts;
-import javaboy.lang.Short;
 
-import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * Renders the screen a line at a time into an ARGB frame buffer.  Each line is composed from the
+ * background, window and sprites using the register values in effect when the line is drawn, so
+ * scroll and palette changes between lines show up as they do on the hardware.
+ */
 public class GraphicsChip {
 
     public static final int WIDTH = 160;
     public static final int HEIGHT = 144;
 
-    /**
-     * Tile uses the background palette
-     */
-    public static final int TILE_BACKGROUND = 0;
-
-    /**
-     * Tile uses the first sprite palette
-     */
-    public static final int TILE_OBJECT_1 = 4;
-
-    /**
-     * Tile uses the second sprite palette
-     */
-    public static final int TILE_OBJECT_2 = 8;
-
-    /**
-     * Tile is flipped horizontally
-     */
-    public static final int TILE_FLIP_X = 1;
-
-    /**
-     * Tile is flipped vertically
-     */
-    public static final int TILE_FLIP_Y = 2;
-
     /**
      * The current contents of the video memory, mapped in at 0x8000 - 0x9FFF
      */
@@ -49,30 +28,36 @@ public class GraphicsChip {
     public boolean winEnabled = true;
 
     /**
-     * The image containing the Gameboy screen
+     * The Gameboy screen, ARGB pixels row by row
      */
-    private final Image backBuffer;
+    private final int[] frameBuffer = new int[WIDTH * HEIGHT];
 
     /**
-     * The current frame skip value
+     * The line being drawn.  It is copied into the frame buffer once complete, noting which
+     * pixels changed.
      */
-    private final int frameSkip = 2;
+    private final int[] lineBuffer = new int[WIDTH];
 
     /**
-     * The number of frames that have been drawn so far in the current frame sampling period
+     * Changes to the frame buffer since the last frame was delivered
      */
-    private int framesDrawn = 0;
+    private final DirtyRegion dirtyRegion = new DirtyRegion();
 
     /**
-     * Amount of time to wait between frames (ms)
+     * For each pixel of the line being drawn, whether the background or window drew a colour
+     * other than colour 0 there.  Sprites behind the background only show where this is false.
+     */
+    private final boolean[] lineOpaque = new boolean[WIDTH];
+
+    /**
+     * The current frame skip value
      */
-    public int frameWaitTime = 0;
+    private final int frameSkip = 2;
 
     /**
-     * The current frame has finished drawing
+     * The number of frames that have been drawn so far in the current frame sampling period
      */
-    public boolean frameDone = false;
-    public long startTime = 0;
+    private int framesDrawn = 0;
 
     /**
      * Selection of one of two addresses for the BG and Window tile data areas
@@ -88,317 +73,299 @@ public class GraphicsChip {
      * Selection of one of two address for the BG tile map.
      */
     public boolean hiBgTileMapAddress = false;
+
+    /**
+     * Selection of one of two address for the window tile map.
+     */
+    public boolean hiWindowTileMapAddress = false;
+
+    /**
+     * SCX, SCY, WX and WY
+     */
+    public int scrollX;
+    public int scrollY;
+    public int windowX;
+    public int windowY;
+
+    /**
+     * The line of the window to draw next.  It only advances on lines where the window is shown.
+     */
+    private int windowLine;
+
     private final Cpu cpu;
-    private final int vidRamStart = 0;
+
+    private static final int SPRITE_COUNT = 40;
+    private static final int SPRITES_PER_LINE = 10;
 
     /**
-     * Tile cache
+     * Object attribute memory, mapped in at 0xFE00 - 0xFE9F.  Four bytes per sprite: Y + 16,
+     * X + 8, tile number and attributes.
      */
-    private final GameboyTile[] tiles = new GameboyTile[384 * 2];
+    private final byte[] oam = new byte[SPRITE_COUNT * 4];
 
-    // Hacks to allow some raster effects to work.  Or at least not to break as badly.
-    private boolean savedWindowDataSelect = false;
+    /**
+     * OAM indices of the sprites selected for the line being drawn, in priority order
+     */
+    private final int[] lineSprites = new int[SPRITES_PER_LINE];
 
-    private boolean windowEnableThisLine = false;
-    private int windowStopLine = GraphicsChip.HEIGHT;
+    /**
+     * Tile cache
+     */
+    private final TileCache tiles = new TileCache();
 
-    public GraphicsChip(Component a, Cpu d) {
+    public GraphicsChip(Cpu d) {
         cpu = d;
 
+        // Nothing has been delivered yet, so the first frame is new in its entirety
+        dirtyRegion.addAll();
+
         backgroundPalette = new GameboyPalette(0, 1, 2, 3);
         obj1Palette = new GameboyPalette(0, 1, 2, 3);
         obj2Palette = new GameboyPalette(0, 1, 2, 3);
+    }
 
-        backBuffer = a.createImage(GraphicsChip.WIDTH, GraphicsChip.HEIGHT);
-
-        for (int r = 0; r < 384 * 2; r++) {
-            tiles[r] = new GameboyTile(this, a);
-        }
+    /**
+     * The frame buffer, {@link #WIDTH} x {@link #HEIGHT} ARGB pixels row by row
+     */
+    public int[] getFrameBuffer() {
+        return frameBuffer;
     }
 
     /**
-     * Calculate the number of frames per second for the current sampling period
+     * The video RAM array, so that the memory controller can map it for direct reads.  Writes
+     * must go through {@link #addressWrite(int, byte)}.
      */
-    private void calculateFPS() {
-        if (startTime == 0) {
-            startTime = System.currentTimeMillis();
-        }
-        if (framesDrawn > 30) {
-            long delay = System.currentTimeMillis() - startTime;
-            int averageFPS = (int) ((framesDrawn) / (delay / 1000f));
-            startTime = System.currentTimeMillis();
-            int timePerFrame;
-
-            if (averageFPS != 0) {
-                timePerFrame = 1000 / averageFPS;
-            } else {
-                timePerFrame = 100;
-            }
-            frameWaitTime = 17 - timePerFrame + frameWaitTime;
-            framesDrawn = 0;
-        }
+    public byte[] getVideoRam() {
+        return videoRam;
     }
 
     /**
-     * Flush the tile cache
+     * The object attribute memory array, so that the memory controller and OAM DMA can access it
+     * directly
      */
-    public void dispose() {
-        for (int r = 0; r < 384 * 2; r++) {
-            if (tiles[r] != null) tiles[r].dispose();
-        }
+    public byte[] getOam() {
+        return oam;
     }
 
     /**
      * Reads data from the specified video RAM address
      */
     public short addressRead(int address) {
-        return videoRam[address + vidRamStart];
+        return videoRam[address];
     }
 
     /**
      * Writes data to the specified video RAM address
      */
     public void addressWrite(int address, byte data) {
+        videoRam[address] = data;
         if (address < 0x1800) {   // Bkg Tile data area
-            int tileStart = 0;
-            tiles[(address >> 4) + tileStart].invalidate();
-            videoRam[address + vidRamStart] = data;
-        } else {
-            videoRam[address + vidRamStart] = data;
+            tiles.update(videoRam, address);
         }
     }
 
     /**
-     * Invalidates all tiles in the tile cache that have the given attributes.
-     * These will be regenerated next time they are drawn.
+     * Writes a block of data to video RAM starting at the specified address, decoding the tile
+     * rows it covers
      */
-    public void invalidateAll(int attribs) {
-        for (int r = 0; r < 384 * 2; r++) {
-            tiles[r].invalidate(attribs);
+    public void addressWrite(int address, byte[] data, int offset, int length) {
+        System.arraycopy(data, offset, videoRam, address, length);
+
+        int end = Math.min(address + length, 0x1800);
+        for (int rowAddress = address & ~1; rowAddress < end; rowAddress += 2) {
+            tiles.update(videoRam, rowAddress);
         }
     }
 
     /**
-     * Draw sprites into the back buffer which have the given priority
+     * This must be called by the CPU for each scanline drawn by the display hardware.  Visible
+     * lines are drawn into the frame buffer, unless the frame is being skipped.
      */
-    private void drawSprites(Graphics back, int priority) {
-
-        int vidRamAddress;
-
-        // Draw sprites
-        for (int i = 0; i < 40; i++) {
-            int spriteX = cpu.read(new Short(0xFE01 + (i * 4))).intValue() - 8;
-            int spriteY = cpu.read(new Short(0xFE00 + (i * 4))).intValue() - 16;
-            int tileNum = cpu.read(new Short(0xFE02 + (i * 4))).intValue();
-            int attributes = cpu.read(new Short(0xFE03 + (i * 4))).intValue();
-
-            if ((attributes & 0x80) >> 7 == priority) {
-
-                int spriteAttrib = 0;
-
-                if (doubledSprites) {
-                    tileNum &= 0xFE;
-                }
-
-                vidRamAddress = tileNum << 4;
-                if ((attributes & 0x10) != 0) {
-                    spriteAttrib |= TILE_OBJECT_2;
-                } else {
-                    spriteAttrib |= TILE_OBJECT_1;
-                }
-
-                if ((attributes & 0x20) != 0) {
-                    spriteAttrib |= TILE_FLIP_X;
-                }
-                if ((attributes & 0x40) != 0) {
-                    spriteAttrib |= TILE_FLIP_Y;
-                }
-
-                if (tiles[tileNum].invalid(spriteAttrib)) {
-                    tiles[tileNum].validate(videoRam, vidRamAddress, spriteAttrib);
-                }
-
-                if ((spriteAttrib & TILE_FLIP_Y) != 0) {
-                    if (doubledSprites) {
-                        tiles[tileNum].draw(back, spriteX, spriteY + 8, spriteAttrib);
-                    } else {
-                        tiles[tileNum].draw(back, spriteX, spriteY, spriteAttrib);
-                    }
-                } else {
-                    tiles[tileNum].draw(back, spriteX, spriteY, spriteAttrib);
-                }
+    public void notifyScanline(int line) {
+        if ((framesDrawn % frameSkip) != 0 || line >= HEIGHT) {
+            return;
+        }
 
-                if (doubledSprites) {
-                    if (tiles[tileNum + 1].invalid(spriteAttrib)) {
-                        tiles[tileNum + 1].validate(videoRam, vidRamAddress + 16, spriteAttrib);
-                    }
+        if (line == 0) {
+            windowLine = 0;
+        }
 
+        drawBackground(line);
+        drawWindow(line);
 
-                    if ((spriteAttrib & TILE_FLIP_Y) != 0) {
-                        tiles[tileNum + 1].draw(back, spriteX, spriteY, spriteAttrib);
-                    } else {
-                        tiles[tileNum + 1].draw(back, spriteX, spriteY + 8, spriteAttrib);
-                    }
-                }
-            }
+        if (spritesEnabled) {
+            drawSprites(line);
         }
 
+        commitLine(line);
     }
 
     /**
-     * This must be called by the CPU for each scanline drawn by the display hardware.  It
-     * handles drawing of the background layer
+     * Copies the line buffer into the frame buffer, adding the pixels that changed to the dirty
+     * region
      */
-    public void notifyScanline(int line) {
+    private void commitLine(int line) {
+        int lineStart = line * WIDTH;
 
-        if ((framesDrawn % frameSkip) != 0) {
+        int left = 0;
+        while (left < WIDTH && lineBuffer[left] == frameBuffer[lineStart + left]) {
+            left++;
+        }
+
+        if (left == WIDTH) {
             return;
         }
 
-        if (line == 0) {
-            clearFrameBuffer();
-            drawSprites(backBuffer.getGraphics(), 1);
-            windowStopLine = GraphicsChip.HEIGHT;
-            windowEnableThisLine = winEnabled;
+        int right = WIDTH;
+        while (lineBuffer[right - 1] == frameBuffer[lineStart + right - 1]) {
+            right--;
         }
 
-        if (windowEnableThisLine) {
-            if (!winEnabled) {
-                windowStopLine = line;
-                windowEnableThisLine = false;
-            }
+        System.arraycopy(lineBuffer, left, frameBuffer, lineStart + left, right - left);
+        dirtyRegion.add(line, left, right);
+    }
+
+    /**
+     * Changes to the frame buffer since the last frame was delivered
+     */
+    public DirtyRegion getDirtyRegion() {
+        return dirtyRegion;
+    }
+
+    /**
+     * The tile number of a tile map entry, for the tile data area currently selected
+     */
+    private int tileNumber(int tileMapAddress) {
+        if (bgWindowDataSelect) {
+            return videoRam[tileMapAddress] & 0xFF;
+        } else {
+            return 256 + videoRam[tileMapAddress];
         }
+    }
 
-        // Fix to screwed up status bars.  Record which data area is selected on the
-        // first line the window is to be displayed.  Will work unless this is changed
-        // after window is started
-        // NOTE: Still no real support for hblank effects on window/sprites
-        if (line == cpu.ioHandler.read(new Short(0xFF4A)).intValue() + 1) {        // Compare against WY reg
-            savedWindowDataSelect = bgWindowDataSelect;
+    private void drawBackground(int line) {
+        if (!bgEnabled) {
+            Arrays.fill(lineBuffer, backgroundPalette.getRgbEntry(0));
+            Arrays.fill(lineOpaque, false);
+            return;
         }
 
-        int xPixelOfs = cpu.ioHandler.read(new Short(0xFF43)).intValue() % 8;
-        int yPixelOfs = cpu.ioHandler.read(new Short(0xFF42)).intValue() % 8;
+        int y = (line + scrollY) & 0xFF;
+        int tileMapRow = (hiBgTileMapAddress ? 0x1C00 : 0x1800) + (y >> 3) * 32;
 
-        if (((yPixelOfs + line) % 8 == 4) || (line == 0)) {
+        drawTileRow(0, scrollX, tileMapRow, y & 7);
+    }
 
-            if ((line >= GraphicsChip.HEIGHT) && (line < 152)) notifyScanline(line + 8);
+    private void drawWindow(int line) {
+        int left = windowX - 7;
 
-            Graphics back = backBuffer.getGraphics();
+        if (!winEnabled || line < windowY || left >= WIDTH) {
+            return;
+        }
 
-            int xTileOfs = cpu.ioHandler.read(new Short(0xFF43)).intValue() / 8;
-            int yTileOfs = cpu.ioHandler.read(new Short(0xFF42)).intValue() / 8;
-            int bgStartAddress, tileNum;
+        int tileMapRow = (hiWindowTileMapAddress ? 0x1C00 : 0x1800) + (windowLine >> 3) * 32;
 
-            int y = ((line + yPixelOfs) / 8);
+        drawTileRow(Math.max(0, left), Math.max(0, -left), tileMapRow, windowLine & 7);
+        windowLine++;
+    }
 
-            if (hiBgTileMapAddress) {
-                bgStartAddress = 0x1C00;  /* 1C00 */
-            } else {
-                bgStartAddress = 0x1800;
+    /**
+     * Draws background tiles from screen column x to the end of the line, starting mapX pixels
+     * into a 256 pixel wide row of the tile map
+     */
+    private void drawTileRow(int x, int mapX, int tileMapRow, int tileY) {
+        byte[] colours = tiles.colours();
+        int[] rgb = backgroundPalette.getRgbEntries();
+
+        while (x < WIDTH) {
+            int tileNum = tileNumber(tileMapRow + ((mapX & 0xFF) >> 3));
+            int offset = TileCache.offset(tileNum, tileY);
+
+            for (int tileX = mapX & 7; tileX < 8 && x < WIDTH; tileX++, x++, mapX++) {
+                int colour = colours[offset + tileX];
+                lineOpaque[x] = colour != 0;
+                lineBuffer[x] = rgb[colour];
             }
+        }
+    }
 
-            int tileNumAddress, vidMemAddr;
+    /**
+     * Draw the sprites on the given line.  Like the hardware, at most 10 sprites are shown on a
+     * line, the first 10 in OAM that cover it.  Where they overlap, the sprite further left wins,
+     * then the one earlier in OAM.
+     */
+    private void drawSprites(int line) {
+        int height = doubledSprites ? 16 : 8;
+        int count = 0;
+
+        for (int i = 0; i < SPRITE_COUNT && count < SPRITES_PER_LINE; i++) {
+            int row = line - ((oam[i * 4] & 0xFF) - 16);
+
+            if (row >= 0 && row < height) {
+                // Insertion sort by X, keeping OAM order for equal X
+                int spriteX = oam[i * 4 + 1] & 0xFF;
+                int position = count++;
+                while (position > 0 && (oam[lineSprites[position - 1] * 4 + 1] & 0xFF) > spriteX) {
+                    lineSprites[position] = lineSprites[position - 1];
+                    position--;
+                }
+                lineSprites[position] = i;
+            }
+        }
 
-            for (int x = 0; x < 21; x++) {
-                if (bgWindowDataSelect) {
-                    tileNumAddress = bgStartAddress +
-                            (((y + yTileOfs) % 32) * 32) + ((x + xTileOfs) % 32);
+        // Lowest priority first, so that higher priority sprites are drawn over it
+        for (int n = count - 1; n >= 0; n--) {
+            drawSprite(lineSprites[n], line, height);
+        }
+    }
 
-                    tileNum = Shorts.unsigned(videoRam[tileNumAddress]);
-                } else {
-                    tileNumAddress = bgStartAddress +
-                            (((y + yTileOfs) % 32) * 32) + ((x + xTileOfs) % 32);
+    private void drawSprite(int sprite, int line, int height) {
+        int spriteY = (oam[sprite * 4] & 0xFF) - 16;
+        int spriteX = (oam[sprite * 4 + 1] & 0xFF) - 8;
+        int tileNum = oam[sprite * 4 + 2] & 0xFF;
+        int attributes = oam[sprite * 4 + 3] & 0xFF;
 
-                    tileNum = 256 + videoRam[tileNumAddress];
-                }
+        int row = line - spriteY;
+        if ((attributes & 0x40) != 0) {
+            row = height - 1 - row;
+        }
+        if (doubledSprites) {
+            tileNum = (tileNum & 0xFE) + (row >> 3);
+        }
 
-                int attribs;
+        byte[] colours = tiles.colours();
+        int[] rgb = ((attributes & 0x10) != 0 ? obj2Palette : obj1Palette).getRgbEntries();
+        int offset = TileCache.offset(tileNum, row & 7);
+        boolean flipX = (attributes & 0x20) != 0;
+        boolean behindBackground = (attributes & 0x80) != 0;
 
-                vidMemAddr = (tileNum << 4);
-                attribs = TILE_BACKGROUND;
+        for (int column = Math.max(0, -spriteX); column < 8 && spriteX + column < WIDTH; column++) {
+            int x = spriteX + column;
 
-                if (tiles[tileNum].invalid(attribs)) {
-                    tiles[tileNum].validate(videoRam, vidMemAddr, attribs);
-                }
-                tiles[tileNum].draw(back, (8 * x) - xPixelOfs, (8 * y) - yPixelOfs, attribs);
+            // Colour 0 is transparent for sprites
+            int colour = colours[offset + (flipX ? 7 - column : column)];
+            if (colour != 0 && !(behindBackground && lineOpaque[x])) {
+                lineBuffer[x] = rgb[colour];
             }
         }
     }
 
     /**
-     * Clears the frame buffer to the background colour
-     */
-    private void clearFrameBuffer() {
-        Graphics back = backBuffer.getGraphics();
-        back.setColor(new Color(backgroundPalette.getRgbEntry(0)));
-        back.fillRect(0, 0, GraphicsChip.WIDTH, GraphicsChip.HEIGHT);
-    }
-
-    /**
-     * Draw the current graphics frame into the given graphics context
+     * Finishes the current frame and hands it to the display.  Returns false if the frame was
+     * skipped.
      */
-    public boolean draw(Graphics graphics, int startX, int startY) {
-        int tileNum;
-
-        calculateFPS();
+    public boolean finishFrame(Display display) {
         if ((framesDrawn % frameSkip) != 0) {
-            frameDone = true;
-            framesDrawn++;
+            framesDrawn = (framesDrawn + 1) % frameSkip;
             return false;
         } else {
-            framesDrawn++;
+            framesDrawn = (framesDrawn + 1) % frameSkip;
         }
-        Graphics back = backBuffer.getGraphics();
 
-  /* Draw window */
-        if (winEnabled) {
-            int wx, wy;
-            int windowStartAddress;
-
-            if ((cpu.ioHandler.read(new Short(0xFF40)).intValue() & 0x40) != 0) {
-                windowStartAddress = 0x1C00;
-            } else {
-                windowStartAddress = 0x1800;
-            }
-            wx = cpu.ioHandler.read(new Short(0xFF4B)).intValue() - 7;
-            wy = cpu.ioHandler.read(new Short(0xFF4A)).intValue();
-
-            back.setColor(new Color(backgroundPalette.getRgbEntry(0)));
-            back.fillRect(wx, wy, GraphicsChip.WIDTH, GraphicsChip.HEIGHT);
-
-            int tileAddress;
-            int attribs, tileDataAddress;
-
-            for (int y = 0; y < 19 - (wy / 8); y++) {
-                for (int x = 0; x < 21 - (wx / 8); x++) {
-                    tileAddress = windowStartAddress + (y * 32) + x;
-
-                    if (!savedWindowDataSelect) {
-                        tileNum = 256 + videoRam[tileAddress];
-                    } else {
-                        tileNum = Shorts.unsigned(videoRam[tileAddress]);
-                    }
-                    tileDataAddress = tileNum << 4;
-
-                    attribs = TILE_BACKGROUND;
-
-                    if (wy + y * 8 < windowStopLine) {
-                        if (tiles[tileNum].invalid(attribs)) {
-                            tiles[tileNum].validate(videoRam, tileDataAddress, attribs);
-                        }
-                        tiles[tileNum].draw(back, wx + x * 8, wy + y * 8, attribs);
-                    }
-                }
-            }
+        if (display != null) {
+            display.frameReady(frameBuffer, dirtyRegion);
         }
-
-        // Draw sprites if the flag was on at any time during this frame
-        drawSprites(back, 0);
-
-        graphics.drawImage(backBuffer, startX, startY, null);
-
-        frameDone = true;
+        dirtyRegion.clear();
         return true;
     }
 
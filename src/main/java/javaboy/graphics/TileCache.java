@@ -0,0 +1,57 @@
+package javaboy.graphics;
+
+/**
+ * The tile data area decoded to colour numbers, 64 per tile row by row.  A row of a tile is
+ * decoded again whenever one of its two bytes is written, through a table that spreads the bits
+ * of a byte out to one byte per pixel.  Palettes and flipping are applied when tiles are drawn,
+ * so nothing needs to be invalidated when they change.
+ */
+class TileCache {
+
+    static final int TILE_COUNT = 384;
+
+    /**
+     * The eight bits of a byte, most significant first, as the eight bytes of a long, least
+     * significant first
+     */
+    private static final long[] SPREAD = new long[0x100];
+
+    static {
+        for (int value = 0; value < 0x100; value++) {
+            long spread = 0;
+            for (int pixel = 0; pixel < 8; pixel++) {
+                if ((value & (0x80 >> pixel)) != 0) {
+                    spread |= 1L << (pixel * 8);
+                }
+            }
+            SPREAD[value] = spread;
+        }
+    }
+
+    private final byte[] colours = new byte[TILE_COUNT * 64];
+
+    /**
+     * Decodes the row of the tile containing the given tile data address
+     */
+    void update(byte[] videoRam, int address) {
+        int rowAddress = address & ~1;
+        long row = SPREAD[videoRam[rowAddress] & 0xFF] | (SPREAD[videoRam[rowAddress + 1] & 0xFF] << 1);
+
+        // 16 bytes of tile data decode to 64 colours, so each byte of data is 4 colours
+        int offset = rowAddress << 2;
+        for (int pixel = 0; pixel < 8; pixel++) {
+            colours[offset + pixel] = (byte) (row >>> (pixel * 8));
+        }
+    }
+
+    /**
+     * Colour numbers of all tiles.  Tile n row y starts at {@link #offset(int, int)}.
+     */
+    byte[] colours() {
+        return colours;
+    }
+
+    static int offset(int tile, int row) {
+        return (tile << 6) + (row << 3);
+    }
+}
@@ -262,6 +262,17 @@ public enum BaseOpcode implements Opcode {
     CP_n(254), //   FE   11111110
     RST_38(255); //   FF   11111111
 
+    /**
+     * Decode table indexed by opcode value, so that decoding is a single array load
+     */
+    private static final BaseOpcode[] OPCODES = new BaseOpcode[0x100];
+
+    static {
+        for (BaseOpcode item : values()) {
+            OPCODES[item.intValue()] = item;
+        }
+    }
+
     private int opcode;
 
     BaseOpcode(int opcode) {
@@ -279,12 +290,10 @@ public enum BaseOpcode implements Opcode {
     }
 
     public static BaseOpcode from(int opcode) {
-        for (BaseOpcode item: BaseOpcode.values()) {
-            if (opcode == item.intValue()) {
-                return item;
-            }
+        if ((opcode & 0xFFFFFF00) != 0) {
+            throw new IllegalArgumentException("Opcode should be in the range 0x00..0xFF. Opcode passed: " + opcode);
         }
-        throw new IllegalArgumentException();
+        return OPCODES[opcode];
     }
 
 }
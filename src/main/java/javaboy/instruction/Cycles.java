@@ -0,0 +1,73 @@
+package javaboy.instruction;
+
+/**
+ * Clock cycles taken by each instruction, at 4194304 cycles per second.
+ *
+ * Conditional branches are listed with the cost when the branch is not taken; a taken branch
+ * adds {@link #JR_TAKEN}, {@link #JP_TAKEN}, {@link #CALL_TAKEN} or {@link #RET_TAKEN}.  The
+ * unconditional JR, JP, CALL, RET and RETI are listed the same way and always add them.
+ */
+public final class Cycles {
+
+    public static final int JR_TAKEN = 4;
+    public static final int JP_TAKEN = 4;
+    public static final int CALL_TAKEN = 12;
+    public static final int RET_TAKEN = 12;
+
+    /**
+     * Pushing PC and jumping to an interrupt vector
+     */
+    public static final int INTERRUPT = 20;
+
+    /**
+     * Base opcodes.  Opcodes that do not exist are given the cost of a NOP.
+     */
+    private static final int[] BASE = {
+            //  0   1   2   3   4   5   6   7   8   9   A   B   C   D   E   F
+            4, 12, 8, 8, 4, 4, 8, 4, 20, 8, 8, 8, 4, 4, 8, 4,       // 0x00
+            4, 12, 8, 8, 4, 4, 8, 4, 8, 8, 8, 8, 4, 4, 8, 4,        // 0x10
+            8, 12, 8, 8, 4, 4, 8, 4, 8, 8, 8, 8, 4, 4, 8, 4,        // 0x20
+            8, 12, 8, 8, 12, 12, 12, 4, 8, 8, 8, 8, 4, 4, 8, 4,     // 0x30
+            4, 4, 4, 4, 4, 4, 8, 4, 4, 4, 4, 4, 4, 4, 8, 4,         // 0x40
+            4, 4, 4, 4, 4, 4, 8, 4, 4, 4, 4, 4, 4, 4, 8, 4,         // 0x50
+            4, 4, 4, 4, 4, 4, 8, 4, 4, 4, 4, 4, 4, 4, 8, 4,         // 0x60
+            8, 8, 8, 8, 8, 8, 4, 8, 4, 4, 4, 4, 4, 4, 8, 4,         // 0x70
+            4, 4, 4, 4, 4, 4, 8, 4, 4, 4, 4, 4, 4, 4, 8, 4,         // 0x80
+            4, 4, 4, 4, 4, 4, 8, 4, 4, 4, 4, 4, 4, 4, 8, 4,         // 0x90
+            4, 4, 4, 4, 4, 4, 8, 4, 4, 4, 4, 4, 4, 4, 8, 4,         // 0xA0
+            4, 4, 4, 4, 4, 4, 8, 4, 4, 4, 4, 4, 4, 4, 8, 4,         // 0xB0
+            8, 12, 12, 12, 12, 16, 8, 16, 8, 4, 12, 4, 12, 12, 8, 16, // 0xC0
+            8, 12, 12, 4, 12, 16, 8, 16, 8, 4, 12, 4, 12, 4, 8, 16,   // 0xD0
+            12, 12, 8, 4, 4, 16, 8, 16, 16, 4, 16, 4, 4, 4, 8, 16,    // 0xE0
+            12, 12, 8, 4, 4, 16, 8, 16, 12, 8, 16, 4, 4, 4, 8, 16,    // 0xF0
+    };
+
+    /**
+     * CB prefixed opcodes, not counting the 4 cycles of the prefix itself
+     */
+    private static final int[] EXTENDED = new int[0x100];
+
+    static {
+        for (int opcode = 0; opcode < 0x100; opcode++) {
+            if ((opcode & 0x07) != 0x06) {
+                EXTENDED[opcode] = 4;
+            } else if ((opcode & 0xC0) == 0x40) {
+                // BIT n, (HL) only reads memory
+                EXTENDED[opcode] = 8;
+            } else {
+                EXTENDED[opcode] = 12;
+            }
+        }
+    }
+
+    private Cycles() {
+    }
+
+    public static int base(int opcode) {
+        return BASE[opcode];
+    }
+
+    public static int extended(int opcode) {
+        return EXTENDED[opcode];
+    }
+}
@@ -261,6 +261,17 @@ public enum ExtendedOpcode implements Opcode {
     SET_7_iHLi(254), //   FE   11111110
     SET_7_A(255); //   FF   11111111
 
+    /**
+     * Decode table indexed by opcode value, so that decoding is a single array load
+     */
+    private static final ExtendedOpcode[] OPCODES = new ExtendedOpcode[0x100];
+
+    static {
+        for (ExtendedOpcode item : values()) {
+            OPCODES[item.intValue()] = item;
+        }
+    }
+
     private int opcode;
 
     ExtendedOpcode(int opcode) {
@@ -278,12 +289,10 @@ public enum ExtendedOpcode implements Opcode {
     }
 
     public static ExtendedOpcode from(int opcode) {
-        for (ExtendedOpcode item: ExtendedOpcode.values()) {
-            if (opcode == item.intValue()) {
-                return item;
-            }
+        if ((opcode & 0xFFFFFF00) != 0) {
+            throw new IllegalArgumentException("Opcode should be in the range 0x00..0xFF. Opcode passed: " + opcode);
         }
-        throw new IllegalArgumentException();
+        return OPCODES[opcode];
     }
 
 }
@@ -0,0 +1,14 @@
+package javaboy.instruction;
+
+/**
+ * Executes a single decoded opcode.  The CPU keeps one handler per opcode value
+ * so that dispatch is an indexed load followed by a call.  The immediate operand is fetched
+ * before the handler is called, as described by {@link Operands}, and is 0 for an opcode
+ * without one.
+ */
+@FunctionalInterface
+public interface OpcodeHandler {
+
+    void execute(int immediate);
+
+}
@@ -30,38 +30,38 @@ public class Byte {
     }
 
     public int lowerNibble() {
-        return value & 0xF;
+        return intValue() & 0xF;
     }
 
     public void lowerNibble(int value) {
-        this.value = (this.value & 0xF0) | (value & 0xF);
+        setValue((intValue() & 0xF0) | (value & 0xF));
     }
 
     public int upperNibble() {
-        return value >> 4;
+        return intValue() >> 4;
     }
 
     public void upperNibble(int i) {
-        this.value = (this.value & 0x0F) | ((i & 0xF) << 4);
+        setValue((intValue() & 0x0F) | ((i & 0xF) << 4));
     }
 
     public void swap() {
-        value = (lowerNibble() << 4) | upperNibble();
+        setValue((lowerNibble() << 4) | upperNibble());
     }
 
     public void inc() {
-        setValue(value + 1);
+        setValue(intValue() + 1);
     }
 
     public void neg() {
-        setValue(~value);
+        setValue(~intValue());
     }
 
     public Bit getBit(int index) {
         if ((index & 0xFFFFFFF8) != 0) {
             throw new IllegalArgumentException("Bit index on a byte should be in the range 0..7. Index passed: " + index);
         }
-        if (((value >> index) & 1) == 1) {
+        if (((intValue() >> index) & 1) == 1) {
             return ONE;
         } else {
             return Bit.ZERO;
@@ -74,9 +74,9 @@ public class Byte {
         }
 
         if (value == ONE) {
-            this.value = this.value | (1 << index);
+            setValue(intValue() | (1 << index));
         } else {
-            this.value = this.value & ~(1 << index);
+            setValue(intValue() & ~(1 << index));
         }
 
     }
@@ -0,0 +1,43 @@
+package javaboy.memory;
+
+/**
+ * MBC1, up to 2Mb of ROM and 32Kb of RAM.
+ *
+ * 0x0000 - 0x1FFF  RAM enable, 0x0A in the lower nibble enables
+ * 0x2000 - 0x3FFF  Lower 5 bits of the ROM bank, bank 0 selects bank 1
+ * 0x4000 - 0x5FFF  2 bit RAM bank or upper 2 bits of the ROM bank
+ * 0x6000 - 0x7FFF  Banking mode, 0 for ROM banking and 1 for RAM banking
+ */
+public class Mbc1Controller extends MemoryBankController {
+
+    private int lowerBank = 1;
+    private int upperBank;
+    private boolean ramBanking;
+    private boolean ramEnable;
+
+    public Mbc1Controller(MemoryBank rom, MemoryBank ram) {
+        super(rom, ram);
+    }
+
+    @Override
+    protected void writeRegister(int address, int data) {
+        switch (address >> 13) {
+            case 0:
+                ramEnable = (data & 0x0F) == 0x0A;
+                break;
+            case 1:
+                lowerBank = (data & 0x1F) == 0 ? 1 : data & 0x1F;
+                break;
+            case 2:
+                upperBank = data & 0x03;
+                break;
+            case 3:
+                ramBanking = (data & 0x01) != 0;
+                break;
+        }
+
+        selectRomBank((upperBank << 5) | lowerBank);
+        selectLowerRomBank(ramBanking ? upperBank << 5 : 0);
+        selectRam(ramEnable, ramBanking ? upperBank : 0);
+    }
+}
@@ -0,0 +1,142 @@
+package javaboy.memory;
+
+/**
+ * MBC3, up to 2Mb of ROM, 32Kb of RAM and a real time clock.
+ *
+ * 0x0000 - 0x1FFF  RAM and clock enable, 0x0A in the lower nibble enables
+ * 0x2000 - 0x3FFF  7 bit ROM bank, bank 0 selects bank 1
+ * 0x4000 - 0x5FFF  RAM bank 0x00 - 0x03, or clock register 0x08 - 0x0C
+ * 0x6000 - 0x7FFF  Writing 0x00 then 0x01 latches the clock registers
+ */
+public class Mbc3Controller extends MemoryBankController {
+
+    private static final int RTC_SECONDS = 0x08;
+    private static final int RTC_MINUTES = 0x09;
+    private static final int RTC_HOURS = 0x0A;
+    private static final int RTC_DAY_LOW = 0x0B;
+    private static final int RTC_DAY_HIGH = 0x0C;
+
+    private static final int HALT = 0x40;
+    private static final int DAY_CARRY = 0x80;
+
+    private int romBank = 1;
+    private int ramBank;
+    private boolean ramEnable;
+    private int latch = 0xFF;
+
+    /**
+     * The clock counts seconds from its base time while running, and keeps a fixed count while halted
+     */
+    private long clockBase = currentSeconds();
+    private long haltedSeconds;
+    private boolean halted;
+    private boolean dayCarry;
+    private final int[] latched = new int[5];
+
+    public Mbc3Controller(MemoryBank rom, MemoryBank ram) {
+        super(rom, ram);
+    }
+
+    @Override
+    protected void writeRegister(int address, int data) {
+        switch (address >> 13) {
+            case 0:
+                ramEnable = (data & 0x0F) == 0x0A;
+                break;
+            case 1:
+                romBank = (data & 0x7F) == 0 ? 1 : data & 0x7F;
+                selectRomBank(romBank);
+                break;
+            case 2:
+                ramBank = data;
+                break;
+            case 3:
+                if (latch == 0x00 && data == 0x01) {
+                    latchClock();
+                }
+                latch = data;
+                break;
+        }
+
+        // Clock registers are served by readUnmapped and writeUnmapped
+        selectRam(ramEnable && ramBank < RTC_SECONDS, ramBank & 0x03);
+    }
+
+    @Override
+    protected int readUnmapped(int address) {
+        if (ramEnable && ramBank >= RTC_SECONDS && ramBank <= RTC_DAY_HIGH) {
+            return latched[ramBank - RTC_SECONDS];
+        }
+
+        return 0xFF;
+    }
+
+    @Override
+    protected void writeUnmapped(int address, int data) {
+        if (!ramEnable || ramBank < RTC_SECONDS || ramBank > RTC_DAY_HIGH) {
+            return;
+        }
+
+        long seconds = clockSeconds();
+        long days = seconds / 86400;
+        long secondOfDay = seconds % 86400;
+
+        switch (ramBank) {
+            case RTC_SECONDS:
+                secondOfDay += (data % 60) - (secondOfDay % 60);
+                break;
+            case RTC_MINUTES:
+                secondOfDay += ((data % 60) - (secondOfDay / 60 % 60)) * 60;
+                break;
+            case RTC_HOURS:
+                secondOfDay += ((data % 24) - (secondOfDay / 3600)) * 3600;
+                break;
+            case RTC_DAY_LOW:
+                days = (days & 0x100) | data;
+                break;
+            case RTC_DAY_HIGH:
+                days = ((data & 0x01) << 8) | (days & 0xFF);
+                dayCarry = (data & DAY_CARRY) != 0;
+                setClock(days * 86400 + secondOfDay);
+                halted = (data & HALT) != 0;
+                return;
+        }
+
+        setClock(days * 86400 + secondOfDay);
+    }
+
+    private void latchClock() {
+        long seconds = clockSeconds();
+        long days = seconds / 86400;
+
+        latched[RTC_SECONDS - RTC_SECONDS] = (int) (seconds % 60);
+        latched[RTC_MINUTES - RTC_SECONDS] = (int) (seconds / 60 % 60);
+        latched[RTC_HOURS - RTC_SECONDS] = (int) (seconds / 3600 % 24);
+        latched[RTC_DAY_LOW - RTC_SECONDS] = (int) (days & 0xFF);
+        latched[RTC_DAY_HIGH - RTC_SECONDS] = (int) ((days >> 8) & 0x01) | (halted ? HALT : 0) | (dayCarry ? DAY_CARRY : 0);
+    }
+
+    /**
+     * Seconds counted by the clock, wrapping after 512 days with the day carry set
+     */
+    private long clockSeconds() {
+        long seconds = halted ? haltedSeconds : currentSeconds() - clockBase;
+
+        if (seconds >= 512 * 86400L) {
+            dayCarry = true;
+            seconds %= 512 * 86400L;
+            setClock(seconds);
+        }
+
+        return seconds;
+    }
+
+    private void setClock(long seconds) {
+        haltedSeconds = seconds;
+        clockBase = currentSeconds() - seconds;
+    }
+
+    private static long currentSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
@@ -0,0 +1,44 @@
+package javaboy.memory;
+
+/**
+ * MBC5, up to 8Mb of ROM and 128Kb of RAM.
+ *
+ * 0x0000 - 0x1FFF  RAM enable, 0x0A in the lower nibble enables
+ * 0x2000 - 0x2FFF  Lower 8 bits of the ROM bank, bank 0 can be selected
+ * 0x3000 - 0x3FFF  9th bit of the ROM bank
+ * 0x4000 - 0x5FFF  4 bit RAM bank
+ */
+public class Mbc5Controller extends MemoryBankController {
+
+    private int romBank = 1;
+    private int ramBank;
+    private boolean ramEnable;
+
+    public Mbc5Controller(MemoryBank rom, MemoryBank ram) {
+        super(rom, ram);
+    }
+
+    @Override
+    protected void writeRegister(int address, int data) {
+        switch (address >> 12) {
+            case 0x0:
+            case 0x1:
+                ramEnable = (data & 0x0F) == 0x0A;
+                selectRam(ramEnable, ramBank);
+                break;
+            case 0x2:
+                romBank = (romBank & 0x100) | data;
+                selectRomBank(romBank);
+                break;
+            case 0x3:
+                romBank = ((data & 0x01) << 8) | (romBank & 0xFF);
+                selectRomBank(romBank);
+                break;
+            case 0x4:
+            case 0x5:
+                ramBank = data & 0x0F;
+                selectRam(ramEnable, ramBank);
+                break;
+        }
+    }
+}
@@ -4,15 +4,19 @@ import javaboy.ReadableWritable;
 import javaboy.lang.Byte;
 import javaboy.lang.Short;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 
-public class Memory implements ReadableWritable, Iterable<Byte> {
+/**
+ * A contiguous block of memory backed by a flat byte array.  {@link #readByte(int)} and
+ * {@link #writeByte(int, int)} are the allocation-free access paths; the {@link Byte} based
+ * API hands out views that read and write through to the array.
+ */
+public class Memory implements ReadableWritable, MemoryRegion, Iterable<Byte> {
 
     private final int firstAddress;
     private final int size;
 
-    private final ArrayList<Byte> memory = new ArrayList<>();
+    private final byte[] memory;
 
     public Memory(int firstAddress, int size) {
         if (firstAddress < 0) {
@@ -25,12 +29,12 @@ public class Memory implements ReadableWritable, Iterable<Byte> {
 
         this.firstAddress = firstAddress;
         this.size = size;
-
-        for (int i = firstAddress; i <= lastAddress(); i++) {
-            memory.add(new Byte());
-        }
+        this.memory = new byte[size];
     }
 
+    /**
+     * Creates a memory block backed by the given array.  The array is not copied.
+     */
     public Memory(int firstAddress, byte[] data) {
         if (firstAddress < 0) {
             throw new IllegalArgumentException();
@@ -46,10 +50,7 @@ public class Memory implements ReadableWritable, Iterable<Byte> {
 
         this.firstAddress = firstAddress;
         this.size = data.length;
-
-        for (int i = 0; i < size; i++) {
-            memory.add(new Byte(data[i]));
-        }
+        this.memory = data;
     }
 
     public int firstAddress() {
@@ -64,16 +65,31 @@ public class Memory implements ReadableWritable, Iterable<Byte> {
         return firstAddress + size - 1;
     }
 
+    /**
+     * The backing array, for components that map this memory directly into the address space
+     */
+    byte[] array() {
+        return memory;
+    }
+
+    @Override
+    public int readByte(int address) {
+        return memory[address - firstAddress] & 0xFF;
+    }
+
+    @Override
+    public void writeByte(int address, int value) {
+        memory[address - firstAddress] = (byte) value;
+    }
+
     @Override
     public Byte read(Short address) {
-        return memory.get(normalizeAddress(address));
+        return new Cell(normalizeAddress(address));
     }
 
     @Override
     public void write(Short address, Byte data) {
-        int normalizedAddress = normalizeAddress(address);
-
-        memory.set(normalizedAddress, data);
+        memory[normalizeAddress(address)] = (byte) data.intValue();
     }
 
     private int normalizeAddress(Short address) {
@@ -83,6 +99,10 @@ public class Memory implements ReadableWritable, Iterable<Byte> {
             throw new IllegalStateException("This memory starts at address " + firstAddress);
         }
 
+        if (normalizedAddress >= size) {
+            throw new IndexOutOfBoundsException("This memory ends at address " + lastAddress());
+        }
+
         return normalizedAddress;
     }
 
@@ -91,25 +111,40 @@ public class Memory implements ReadableWritable, Iterable<Byte> {
         return new MemoryIterator();
     }
 
+    /**
+     * Byte view over a single memory location
+     */
+    private class Cell extends Byte {
 
-    private class MemoryIterator implements Iterator<Byte> {
+        private final int index;
 
-        private final Short address;
+        Cell(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int intValue() {
+            return memory[index] & 0xFF;
+        }
 
-        public MemoryIterator() {
-            address = new Short(firstAddress);
+        @Override
+        public void setValue(int value) {
+            memory[index] = (byte) value;
         }
+    }
+
+    private class MemoryIterator implements Iterator<Byte> {
+
+        private int index = 0;
 
         @Override
         public boolean hasNext() {
-            return address.intValue() <= lastAddress();
+            return index < size;
         }
 
         @Override
         public Byte next() {
-            Byte next = read(address);
-            address.inc();
-            return next;
+            return new Cell(index++);
         }
     }
 }
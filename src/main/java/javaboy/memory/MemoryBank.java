@@ -4,26 +4,71 @@ import javaboy.ReadableWritable;
 import javaboy.lang.Byte;
 import javaboy.lang.Short;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
-public class MemoryBank implements ReadableWritable {
+/**
+ * A set of equally sized memory banks sharing one address range, of which one is visible at a
+ * time.  All banks are stored back to back in a single flat array.
+ */
+public class MemoryBank implements ReadableWritable, MemoryRegion {
 
+    private final int firstAddress;
+    private final int memorySize;
     private final int numberOfBanks;
     private int currentBank;
 
-    private final ArrayList<Memory> memoryBank = new ArrayList<>();
+    private final byte[] memory;
 
     public MemoryBank(int firstAddress, int memorySize, int numberOfBanks) {
         if (numberOfBanks < 1) {
             throw new IllegalArgumentException();
         }
 
+        if (firstAddress < 0 || memorySize < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.firstAddress = firstAddress;
+        this.memorySize = memorySize;
         this.numberOfBanks = numberOfBanks;
+        this.memory = new byte[memorySize * numberOfBanks];
+    }
+
+    /**
+     * Creates banks over existing data, such as a cartridge ROM image.  The data is used as is
+     * when it is a whole number of banks long, otherwise it is copied and padded with zeros.
+     */
+    public MemoryBank(int firstAddress, int memorySize, byte[] data) {
+        if (data == null || data.length < 1) {
+            throw new IllegalArgumentException();
+        }
 
-        for (int i = 0; i < numberOfBanks; i++) {
-            Memory memory = new Memory(firstAddress, memorySize);
-            memoryBank.add(memory);
+        if (firstAddress < 0 || memorySize < 1) {
+            throw new IllegalArgumentException();
         }
+
+        this.firstAddress = firstAddress;
+        this.memorySize = memorySize;
+        this.numberOfBanks = (data.length + memorySize - 1) / memorySize;
+        this.memory = (data.length % memorySize == 0) ? data : Arrays.copyOf(data, numberOfBanks * memorySize);
+    }
+
+    public int getNumberOfBanks() {
+        return numberOfBanks;
+    }
+
+    /**
+     * The backing array holding all banks, for mapping banks directly into the address space
+     */
+    byte[] array() {
+        return memory;
+    }
+
+    /**
+     * Position of the first byte of the given bank in the backing array
+     */
+    int bankOffset(int bank) {
+        return bank * memorySize;
     }
 
     public int getCurrentBank() {
@@ -31,20 +76,74 @@ public class MemoryBank implements ReadableWritable {
     }
 
     public void setCurrentBank(int currentBank) {
-        if (currentBank > numberOfBanks || currentBank < 0) {
+        if (currentBank >= numberOfBanks || currentBank < 0) {
             throw new IllegalArgumentException("");
         }
 
         this.currentBank = currentBank;
     }
 
+    @Override
+    public int readByte(int address) {
+        return memory[index(address)] & 0xFF;
+    }
+
+    @Override
+    public void writeByte(int address, int value) {
+        memory[index(address)] = (byte) value;
+    }
+
+    /**
+     * A view of the address in the current bank that reads and writes through to the array, and
+     * stays on that bank when another is selected
+     */
     @Override
     public Byte read(Short address) {
-        return memoryBank.get(currentBank).read(address);
+        return new Cell(index(address.intValue()));
     }
 
     @Override
     public void write(Short address, Byte data) {
-        memoryBank.get(currentBank).write(address, data);
+        writeByte(address.intValue(), data.intValue());
+    }
+
+    /**
+     * Position of an address of the current bank in the backing array.  Addresses outside the
+     * bank's range fail rather than reaching a neighbouring bank.
+     */
+    private int index(int address) {
+        int offset = address - firstAddress;
+
+        if (offset < 0) {
+            throw new IllegalStateException("This memory bank starts at address " + firstAddress);
+        }
+
+        if (offset >= memorySize) {
+            throw new IndexOutOfBoundsException("This memory bank ends at address " + (firstAddress + memorySize - 1));
+        }
+
+        return currentBank * memorySize + offset;
+    }
+
+    /**
+     * Byte view over a single memory location
+     */
+    private class Cell extends Byte {
+
+        private final int index;
+
+        Cell(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int intValue() {
+            return memory[index] & 0xFF;
+        }
+
+        @Override
+        public void setValue(int value) {
+            memory[index] = (byte) value;
+        }
     }
 }
@@ -0,0 +1,167 @@
+package javaboy.memory;
+
+import javaboy.rom.CartridgeHeader;
+import javaboy.rom.RomImage;
+import org.pmw.tinylog.Logger;
+
+/**
+ * Cartridge memory bank controller.  ROM banks and cartridge RAM banks are mapped straight into
+ * the address space, so switching a bank only repoints the pages of the affected range.  Writes
+ * to the ROM area are bank controller register writes and are handed to {@link #writeRegister}.
+ */
+public abstract class MemoryBankController implements MemoryRegion {
+
+    public static final int ROM_BANK_SIZE = 0x4000;
+    public static final int RAM_BANK_SIZE = 0x2000;
+
+    protected final MemoryBank rom;
+    protected final MemoryBank ram;
+
+    private MemoryController memoryController;
+    private boolean ramEnabled;
+
+    protected MemoryBankController(MemoryBank rom, MemoryBank ram) {
+        this.rom = rom;
+        this.ram = ram;
+    }
+
+    /**
+     * Picks the bank controller named by the cartridge header of a ROM image.  The ROM data is
+     * shared with the image, cartridge RAM is allocated for each controller.
+     */
+    public static MemoryBankController create(RomImage image) {
+        CartridgeHeader header = image.getHeader();
+        int type = header.getType();
+
+        MemoryBank rom = new MemoryBank(0x4000, ROM_BANK_SIZE, image.getData());
+        MemoryBank ram = header.getRamBanks() > 0 ? new MemoryBank(0xA000, RAM_BANK_SIZE, header.getRamBanks()) : null;
+
+        switch (type) {
+            case 0x00:
+                return new RomOnlyController(rom, null);
+            case 0x08:
+            case 0x09:
+                return new RomOnlyController(rom, ram);
+            case 0x01:
+            case 0x02:
+            case 0x03:
+                return new Mbc1Controller(rom, ram);
+            case 0x0F:
+            case 0x10:
+            case 0x11:
+            case 0x12:
+            case 0x13:
+                return new Mbc3Controller(rom, ram);
+            case 0x19:
+            case 0x1A:
+            case 0x1B:
+            case 0x1C:
+            case 0x1D:
+            case 0x1E:
+                return new Mbc5Controller(rom, ram);
+            default:
+                Logger.debug("Unsupported cartridge type " + String.format("%02X", type) + ", running as ROM only");
+                return new RomOnlyController(rom, ram);
+        }
+    }
+
+    /**
+     * Maps the cartridge into the address space and hands it the power on bank selection
+     */
+    void attach(MemoryController memoryController) {
+        this.memoryController = memoryController;
+
+        memoryController.setHandler(0x0000, 0x8000, this);
+        memoryController.setHandler(0xA000, RAM_BANK_SIZE, this);
+
+        selectLowerRomBank(0);
+        selectRomBank(1);
+        selectRam(false, 0);
+    }
+
+    public int getRomBank() {
+        return rom.getCurrentBank();
+    }
+
+    public int getRamBank() {
+        return ram == null ? 0 : ram.getCurrentBank();
+    }
+
+    public boolean isRamEnabled() {
+        return ramEnabled;
+    }
+
+    /**
+     * Handles a write to a bank controller register in 0x0000 - 0x7FFF
+     */
+    protected abstract void writeRegister(int address, int data);
+
+    /**
+     * Maps the given ROM bank at 0x4000 - 0x7FFF.  Banks past the end of the ROM mirror.
+     */
+    protected void selectRomBank(int bank) {
+        bank %= rom.getNumberOfBanks();
+        rom.setCurrentBank(bank);
+        memoryController.map(0x4000, ROM_BANK_SIZE, rom.array(), rom.bankOffset(bank), false);
+    }
+
+    /**
+     * Maps the given ROM bank at 0x0000 - 0x3FFF
+     */
+    protected void selectLowerRomBank(int bank) {
+        bank %= rom.getNumberOfBanks();
+        memoryController.map(0x0000, ROM_BANK_SIZE, rom.array(), rom.bankOffset(bank), false);
+    }
+
+    /**
+     * Maps the given RAM bank at 0xA000 - 0xBFFF if RAM is enabled, otherwise leaves the range to
+     * {@link #readUnmapped} and {@link #writeUnmapped}
+     */
+    protected void selectRam(boolean enabled, int bank) {
+        ramEnabled = enabled;
+
+        if (ram == null) {
+            return;
+        }
+
+        bank %= ram.getNumberOfBanks();
+        ram.setCurrentBank(bank);
+
+        if (enabled) {
+            memoryController.map(0xA000, RAM_BANK_SIZE, ram.array(), ram.bankOffset(bank), true);
+        } else {
+            memoryController.unmap(0xA000, RAM_BANK_SIZE);
+        }
+    }
+
+    /**
+     * Read from 0xA000 - 0xBFFF while no RAM bank is mapped there
+     */
+    protected int readUnmapped(int address) {
+        return 0xFF;
+    }
+
+    /**
+     * Write to 0xA000 - 0xBFFF while no RAM bank is mapped there
+     */
+    protected void writeUnmapped(int address, int data) {
+    }
+
+    @Override
+    public int readByte(int address) {
+        if (address < 0x8000) {
+            return rom.array()[address] & 0xFF;
+        }
+
+        return readUnmapped(address);
+    }
+
+    @Override
+    public void writeByte(int address, int data) {
+        if (address < 0x8000) {
+            writeRegister(address, data & 0xFF);
+        } else {
+            writeUnmapped(address, data & 0xFF);
+        }
+    }
+}
@@ -1,14 +1,12 @@
 package javaboy.memory;
 
-import javaboy.InterruptController;
 import javaboy.IoHandler;
 import javaboy.ReadableWritable;
-import javaboy.Registers;
 import javaboy.graphics.GraphicsChip;
 import javaboy.lang.Byte;
 import javaboy.lang.Short;
-import javaboy.rom.loader.RomLoader;
-import org.pmw.tinylog.Logger;
+
+import java.util.function.IntConsumer;
 
 /**
  * ┌─────────────────────────┐ 0x0000
@@ -74,135 +72,342 @@ import org.pmw.tinylog.Logger;
  * │                         │
  * └─────────────────────────┘ 0xFFFF
  */
-public class MemoryController implements ReadableWritable {
-
+public class MemoryController implements ReadableWritable, MemoryRegion {
 
-    private static final int ROM_SIZE = 0x8000;
+    private static final int PAGE_SIZE = 0x100;
+    private static final int PAGE_COUNT = 0x100;
 
-    private final Memory rom;
+    private final MemoryBankController cartridge;
 
     // 8Kb main system RAM appears at 0xC000 in address space
     // 32Kb for GBC
-    private final byte[] mainRam = new byte[ROM_SIZE];
+    private final byte[] mainRam = new byte[0x8000];
+
+    /**
+     * High RAM shares its page with the IO registers, so it cannot be mapped.  It is checked for
+     * before the page's handler instead, to keep stack and polling code a single array index.
+     */
+    private static final int HIGH_RAM_START = 0xFF80;
+    private static final int HIGH_RAM_END = 0xFFFF;
+    private final byte[] highRam = new byte[HIGH_RAM_END - HIGH_RAM_START];
 
-    // 256 bytes at top of RAM are used mainly for registers
-    private final Memory oam = new Memory(0xFE00, 0x100);
+    /**
+     * Page tables for the 256 pages of 256 bytes each.  A page with a backing array is read or
+     * written with a single array access at the page offset plus the low address byte.  A page
+     * without one is routed to the handler registered for it.
+     */
+    private final byte[][] readPages = new byte[PAGE_COUNT][];
+    private final int[] readOffsets = new int[PAGE_COUNT];
+    private final byte[][] writePages = new byte[PAGE_COUNT][];
+    private final int[] writeOffsets = new int[PAGE_COUNT];
+    private final MemoryRegion[] handlers = new MemoryRegion[PAGE_COUNT];
+
+    /**
+     * Write arrays of the pages being watched.  A watched page has no write array in the page
+     * table, so that its writes leave the direct path and reach the write watcher.
+     */
+    private final byte[][] watchedPages = new byte[PAGE_COUNT][];
+    private IntConsumer writeWatcher = address -> {
+    };
 
-    private final Registers registers;
     private final GraphicsChip graphicsChip;
     private final IoHandler ioHandler;
-    private final InterruptController interruptController;
 
-    public MemoryController(GraphicsChip graphicsChip, IoHandler ioHandler, Registers registers, InterruptController interruptController) {
-        rom = RomLoader.loadRom("bgblogo.gb", ROM_SIZE);
+    public MemoryController(GraphicsChip graphicsChip, IoHandler ioHandler, MemoryBankController cartridge) {
+        this.cartridge = cartridge;
         this.graphicsChip = graphicsChip;
         this.ioHandler = ioHandler;
-        this.registers = registers;
-        this.interruptController = interruptController;
+
+        mapMemory();
     }
 
-    @Override
-    public Byte read(Short address) {
-        switch ((address.intValue() & 0xF000)) {
-            case 0x0000:
-            case 0x1000:
-            case 0x2000:
-            case 0x3000:
-            case 0x4000:
-            case 0x5000:
-            case 0x6000:
-            case 0x7000:
-                return rom.read(address);
-
-            case 0x8000:
-            case 0x9000:
-                return new Byte(graphicsChip.addressRead(address.intValue() - 0x8000));
-
-            case 0xA000:
-            case 0xB000:
-                return rom.read(address);
-
-            case 0xC000:
-                return new Byte((mainRam[address.intValue() - 0xC000]));
-
-            case 0xD000:
-                return new Byte((mainRam[address.intValue() - 0xD000]));
-
-            case 0xE000:
-                return new Byte(mainRam[address.intValue() - 0xE000]);
-
-            case 0xF000:
-                if (address.intValue() == InterruptController.FLAGS_ADDRESS || address.intValue() == InterruptController.ENABLE_ADDRESS) {
-                    return interruptController.read(address);
-                }
+    private void mapMemory() {
+        // ROM banks and cartridge RAM are mapped by the cartridge's memory bank controller
+        cartridge.attach(this);
 
-                if (address.intValue() < 0xFE00) {
-                    return new Byte(mainRam[address.intValue() - 0xE000]);
-                } else if (address.intValue() < 0xFF00) {
-                    return oam.read(address);
-                } else {
-                    return new Byte(ioHandler.ioRead(address.intValue() - 0xFF00));
+        // Video RAM is read directly, writes go through the graphics chip to keep the tile cache valid
+        map(0x8000, 0x2000, graphicsChip.getVideoRam(), 0, false);
+        setHandler(0x8000, 0x2000, videoRamWrites());
+
+        // Working RAM and its echo
+        map(0xC000, 0x2000, mainRam, 0, true);
+        map(0xE000, 0x1E00, mainRam, 0, true);
+
+        // OAM belongs to the graphics chip, the rest of the page is unusable
+        setHandler(0xFE00, PAGE_SIZE, oam());
+
+        // IO registers and the interrupt registers, around high RAM
+        setHandler(0xFF00, PAGE_SIZE, ioRegisters());
+    }
+
+    /**
+     * Maps a page aligned range of the address space directly onto an array, starting at the
+     * given array offset.  Remapping a range is all it takes to switch a memory bank.
+     */
+    public void map(int address, int length, byte[] memory, int offset, boolean writable) {
+        checkPageAligned(address, length);
+        stopWatching(address, length);
+
+        for (int page = address / PAGE_SIZE; page < (address + length) / PAGE_SIZE; page++) {
+            readPages[page] = memory;
+            readOffsets[page] = offset;
+
+            writePages[page] = writable ? memory : null;
+            writeOffsets[page] = offset;
+
+            offset += PAGE_SIZE;
+        }
+    }
+
+    /**
+     * Removes the direct mapping of a page aligned range, so that accesses go to its handler
+     */
+    public void unmap(int address, int length) {
+        checkPageAligned(address, length);
+        stopWatching(address, length);
+
+        for (int page = address / PAGE_SIZE; page < (address + length) / PAGE_SIZE; page++) {
+            readPages[page] = null;
+            writePages[page] = null;
+        }
+    }
+
+    /**
+     * Routes accesses in a page aligned range that are not mapped onto an array to a handler
+     */
+    public void setHandler(int address, int length, MemoryRegion handler) {
+        checkPageAligned(address, length);
+
+        for (int page = address / PAGE_SIZE; page < (address + length) / PAGE_SIZE; page++) {
+            handlers[page] = handler;
+        }
+    }
+
+    /**
+     * The array the page holding an address is read from, null when its reads go to a handler.
+     * Together with {@link #readOffset} it identifies the memory currently mapped there.
+     */
+    public byte[] readPage(int address) {
+        return readPages[address >>> 8];
+    }
+
+    public int readOffset(int address) {
+        return readOffsets[address >>> 8];
+    }
+
+    /**
+     * Whether the page holding an address is written straight into the array it is read from
+     */
+    public boolean isWritable(int address) {
+        int page = address >>> 8;
+        byte[] memory = writePages[page] != null ? writePages[page] : watchedPages[page];
+
+        return memory != null && memory == readPages[page] && writeOffsets[page] == readOffsets[page];
+    }
+
+    /**
+     * Sets the watcher told the address of the watched page first written or remapped
+     */
+    public void setWriteWatcher(IntConsumer writeWatcher) {
+        this.writeWatcher = writeWatcher;
+    }
+
+    /**
+     * Watches the writable page holding an address, and every other page mapped onto the same
+     * memory.  The first write to any watched page, or remapping one, stops all watching and is
+     * reported to the write watcher, so a page costs nothing extra to write until it is watched
+     * again.
+     */
+    public void watchWrites(int address) {
+        int page = address >>> 8;
+        byte[] memory = writePages[page];
+        int offset = writeOffsets[page];
+
+        if (memory == null) {
+            return;
+        }
+
+        for (int alias = 0; alias < PAGE_COUNT; alias++) {
+            if (writePages[alias] == memory && writeOffsets[alias] == offset) {
+                watchedPages[alias] = memory;
+                writePages[alias] = null;
+            }
+        }
+    }
+
+    /**
+     * Stops watching if any page of the range is watched, telling the write watcher
+     */
+    private void stopWatching(int address, int length) {
+        for (int page = address / PAGE_SIZE; page < (address + length) / PAGE_SIZE; page++) {
+            if (watchedPages[page] != null) {
+                for (int watched = 0; watched < PAGE_COUNT; watched++) {
+                    if (watchedPages[watched] != null) {
+                        writePages[watched] = watchedPages[watched];
+                        watchedPages[watched] = null;
+                    }
                 }
 
-            default:
-                Logger.debug("Tried to read address " + address + ".  pc = " + String.format("%04X", registers.pc.intValue()));
-                throw new IllegalStateException("");
+                writeWatcher.accept(page * PAGE_SIZE);
+                return;
+            }
+        }
+    }
+
+    private static void checkPageAligned(int address, int length) {
+        if ((address % PAGE_SIZE) != 0 || (length % PAGE_SIZE) != 0 || address + length > PAGE_SIZE * PAGE_COUNT) {
+            throw new IllegalArgumentException("Range [" + String.format("%04X", address) + "] + " + length + " is not page aligned");
         }
     }
 
+    @Override
+    public Byte read(Short address) {
+        return new Byte(readByte(address.intValue()));
+    }
+
     @Override
     public void write(Short address, Byte data) {
-        switch (address.intValue() & 0xF000) {
-            case 0x0000:
-            case 0x1000:
-            case 0x2000:
-            case 0x3000:
-            case 0x4000:
-            case 0x5000:
-            case 0x6000:
-            case 0x7000:
-                break;
-
-            case 0x8000:
-            case 0x9000:
-                graphicsChip.addressWrite(address.intValue() - 0x8000, (byte) data.intValue());
-                break;
-
-            case 0xA000:
-            case 0xB000:
-                break;
-
-            case 0xC000:
-                mainRam[address.intValue() - 0xC000] = (byte) data.intValue();
-                break;
-
-            case 0xD000:
-                mainRam[address.intValue() - 0xD000] = (byte) data.intValue();
-                break;
-
-            case 0xE000:
-                mainRam[address.intValue() - 0xE000] = (byte) data.intValue();
-                break;
-
-            case 0xF000:
-                if (address.intValue() == InterruptController.FLAGS_ADDRESS || address.intValue() == InterruptController.ENABLE_ADDRESS) {
-                    interruptController.write(address, data);
-                    break;
+        writeByte(address.intValue(), data.intValue());
+    }
+
+    @Override
+    public int readByte(int address) {
+        int page = address >>> 8;
+        byte[] memory = readPages[page];
+
+        if (memory != null) {
+            return memory[readOffsets[page] + (address & 0xFF)] & 0xFF;
+        }
+        if (address >= HIGH_RAM_START && address < HIGH_RAM_END) {
+            return highRam[address - HIGH_RAM_START] & 0xFF;
+        }
+
+        return handlers[page].readByte(address);
+    }
+
+    @Override
+    public void writeByte(int address, int data) {
+        int page = address >>> 8;
+        byte[] memory = writePages[page];
+
+        if (memory != null) {
+            memory[writeOffsets[page] + (address & 0xFF)] = (byte) data;
+        } else if (address >= HIGH_RAM_START && address < HIGH_RAM_END) {
+            highRam[address - HIGH_RAM_START] = (byte) data;
+        } else if (watchedPages[page] != null) {
+            stopWatching(address & 0xFF00, PAGE_SIZE);
+            writeByte(address, data);
+        } else {
+            handlers[page].writeByte(address, data);
+        }
+    }
+
+    /**
+     * Copies a block of memory, as DMA does.  Source and destination are resolved once per page:
+     * where both are mapped onto arrays the page is copied with {@link System#arraycopy}, a
+     * handler destination receives the block through {@link MemoryRegion#writeBytes}, and only a
+     * source without a backing array, such as the IO registers, is read a byte at a time.
+     */
+    public void copy(int source, int destination, int length) {
+        while (length > 0) {
+            source &= 0xFFFF;
+            destination &= 0xFFFF;
+
+            int count = Math.min(length, Math.min(PAGE_SIZE - (source & 0xFF), PAGE_SIZE - (destination & 0xFF)));
+            byte[] from = readPages[source >>> 8];
+
+            if (from == null) {
+                for (int i = 0; i < count; i++) {
+                    writeByte(destination + i, readByte(source + i));
                 }
+            } else {
+                stopWatching(destination & 0xFF00, PAGE_SIZE);
 
-                if (address.intValue() < 0xFE00) {
-                    try {
-                        mainRam[address.intValue() - 0xE000] = (byte) data.intValue();
-                    } catch (ArrayIndexOutOfBoundsException e) {
-                        Logger.debug("Address error: " + address + " pc = " + String.format("%04X", registers.pc.intValue()));
-                    }
-                } else if (address.intValue() < 0xFF00) {
-                    oam.write(address, data);
+                int fromOffset = readOffsets[source >>> 8] + (source & 0xFF);
+                byte[] to = writePages[destination >>> 8];
+
+                if (to != null) {
+                    System.arraycopy(from, fromOffset, to, writeOffsets[destination >>> 8] + (destination & 0xFF), count);
                 } else {
-                    ioHandler.ioWrite(address.intValue() - 0xFF00, (short) data.intValue());
+                    handlers[destination >>> 8].writeBytes(destination, from, fromOffset, count);
                 }
-                break;
+            }
+
+            source += count;
+            destination += count;
+            length -= count;
         }
+    }
+
+    private MemoryRegion videoRamWrites() {
+        return new MemoryRegion() {
+            @Override
+            public int readByte(int address) {
+                return graphicsChip.addressRead(address - 0x8000) & 0xFF;
+            }
+
+            @Override
+            public void writeByte(int address, int data) {
+                graphicsChip.addressWrite(address - 0x8000, (byte) data);
+            }
+
+            @Override
+            public void writeBytes(int address, byte[] source, int offset, int length) {
+                graphicsChip.addressWrite(address - 0x8000, source, offset, length);
+            }
+        };
+    }
+
+    private MemoryRegion oam() {
+        byte[] oam = graphicsChip.getOam();
 
+        return new MemoryRegion() {
+            @Override
+            public int readByte(int address) {
+                int index = address - 0xFE00;
+                return index < oam.length ? oam[index] & 0xFF : 0x00;
+            }
+
+            @Override
+            public void writeByte(int address, int data) {
+                int index = address - 0xFE00;
+                if (index < oam.length) {
+                    oam[index] = (byte) data;
+                }
+            }
+
+            @Override
+            public void writeBytes(int address, byte[] source, int offset, int length) {
+                int index = address - 0xFE00;
+                if (index < oam.length) {
+                    System.arraycopy(source, offset, oam, index, Math.min(length, oam.length - index));
+                }
+            }
+        };
+    }
+
+    /**
+     * The IO and interrupt registers.  High RAM in the same page is only reached through here by
+     * copies into the page, as reads and writes check for it first.
+     */
+    private MemoryRegion ioRegisters() {
+        return new MemoryRegion() {
+            @Override
+            public int readByte(int address) {
+                if (address >= HIGH_RAM_START && address < HIGH_RAM_END) {
+                    return highRam[address - HIGH_RAM_START] & 0xFF;
+                }
+                return ioHandler.ioRead(address - 0xFF00);
+            }
+
+            @Override
+            public void writeByte(int address, int data) {
+                if (address >= HIGH_RAM_START && address < HIGH_RAM_END) {
+                    highRam[address - HIGH_RAM_START] = (byte) data;
+                } else {
+                    ioHandler.ioWrite(address - 0xFF00, data & 0xFF);
+                }
+            }
+        };
     }
 }
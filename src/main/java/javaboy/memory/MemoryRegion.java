@@ -0,0 +1,24 @@
+package javaboy.memory;
+
+/**
+ * A range of the address space that is read and written one byte at a time using primitive
+ * values.  Values read are unsigned (0 - 255); only the lower 8 bits of written values are
+ * stored.
+ */
+public interface MemoryRegion {
+
+    int readByte(int address);
+
+    void writeByte(int address, int data);
+
+    /**
+     * Writes length bytes from the source array, starting at the given address.  Regions backed
+     * by an array override this to copy in one go.
+     */
+    default void writeBytes(int address, byte[] source, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            writeByte(address + i, source[offset + i]);
+        }
+    }
+
+}
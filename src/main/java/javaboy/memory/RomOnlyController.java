@@ -0,0 +1,21 @@
+package javaboy.memory;
+
+/**
+ * Cartridge without a bank controller: 32Kb of ROM and at most one bank of RAM, always enabled
+ */
+public class RomOnlyController extends MemoryBankController {
+
+    public RomOnlyController(MemoryBank rom, MemoryBank ram) {
+        super(rom, ram);
+    }
+
+    @Override
+    void attach(MemoryController memoryController) {
+        super.attach(memoryController);
+        selectRam(true, 0);
+    }
+
+    @Override
+    protected void writeRegister(int address, int data) {
+    }
+}
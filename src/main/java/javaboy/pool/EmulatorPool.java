@@ -0,0 +1,302 @@
+package javaboy.pool;
+
+import javaboy.Cpu;
+import javaboy.rom.RomImage;
+import javaboy.timing.FramePacer;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs many headless emulators on a fixed number of threads, one per core by default.  Each
+ * emulator runs a frame at a time and then goes to the back of the executor's queue, so all of
+ * them make progress together however many there are.  An emulator only ever runs on one thread
+ * at a time.
+ *
+ * Emulators should use the default unlimited frame pacer: a paced emulator holds its pool thread
+ * while it waits.  A pool created with {@link #threadPerEmulator()} instead runs each emulator on
+ * its own thread from start to end of a run, so paced and unlimited emulators can be mixed.
+ */
+public class EmulatorPool implements AutoCloseable {
+
+    /**
+     * Frames an emulator runs before giving up its thread
+     */
+    private static final int FRAMES_PER_SLICE = 1;
+
+    private final ExecutorService executor;
+
+    /**
+     * Whether each run keeps its thread until it ends rather than being time-sliced
+     */
+    private final boolean threadPerEmulator;
+    private final List<Instance> instances = new CopyOnWriteArrayList<>();
+
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder instructions = new LongAdder();
+    private volatile long statisticsStart = System.nanoTime();
+
+    public EmulatorPool() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public EmulatorPool(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads [" + threads + "]");
+        }
+
+        executor = Executors.newFixedThreadPool(threads, new EmulatorThreadFactory());
+        threadPerEmulator = false;
+    }
+
+    private EmulatorPool(ExecutorService executor) {
+        this.executor = executor;
+        threadPerEmulator = true;
+    }
+
+    /**
+     * Creates a pool that runs each emulator on a thread of its own.  Waiting for the frame pacer
+     * parks that thread, so on a JVM with virtual threads a paced emulator costs no platform
+     * thread while it waits.  Older JVMs get a platform thread per running emulator.
+     */
+    public static EmulatorPool threadPerEmulator() {
+        return new EmulatorPool(newThreadPerTaskExecutor());
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor() {
+        // Looked up at run time so that the emulator still builds and runs before Java 21
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException exception) {
+            return Executors.newCachedThreadPool(new EmulatorThreadFactory());
+        }
+    }
+
+    /**
+     * Adds an emulator for the given ROM, reset and ready to run
+     */
+    public Instance add(RomImage rom) {
+        return add(rom, FramePacer.unlimited());
+    }
+
+    /**
+     * Adds an emulator for the given ROM paced by the given frame pacer, reset and ready to run
+     */
+    public Instance add(RomImage rom, FramePacer framePacer) {
+        Cpu cpu = new Cpu(rom);
+        cpu.reset();
+        cpu.setFramePacer(framePacer);
+
+        Instance instance = new Instance(cpu);
+        instances.add(instance);
+        return instance;
+    }
+
+    public void remove(Instance instance) {
+        instances.remove(instance);
+    }
+
+    public List<Instance> getInstances() {
+        return Collections.unmodifiableList(instances);
+    }
+
+    /**
+     * Runs every emulator for the given number of frames.  The future completes when all of them
+     * have finished, or exceptionally if any of them failed.
+     */
+    public CompletableFuture<Void> runFrames(int frames) {
+        return CompletableFuture.allOf(instances.stream()
+                .map(instance -> instance.run(frames))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Frames run by all emulators since the pool was created or statistics were last reset
+     */
+    public long getFrameCount() {
+        return frames.sum();
+    }
+
+    /**
+     * Instructions executed by all emulators since the pool was created or statistics were last
+     * reset
+     */
+    public long getInstructionCount() {
+        return instructions.sum();
+    }
+
+    /**
+     * Frames per second across all emulators since the pool was created or statistics were last
+     * reset
+     */
+    public double getFramesPerSecond() {
+        long nanos = System.nanoTime() - statisticsStart;
+        return nanos == 0 ? 0 : frames.sum() * 1e9 / nanos;
+    }
+
+    public void resetStatistics() {
+        frames.reset();
+        instructions.reset();
+        statisticsStart = System.nanoTime();
+    }
+
+    /**
+     * Stops the pool's threads.  Runs in progress are stopped, part way through a frame if need
+     * be, and complete exceptionally.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+
+        for (Instance instance : instances) {
+            if (instance.isRunning()) {
+                instance.cpu.stop();
+            }
+        }
+    }
+
+    /**
+     * An emulator in the pool
+     */
+    public class Instance {
+
+        private final Cpu cpu;
+
+        private CompletableFuture<Void> run;
+        private int remaining;
+
+        private Instance(Cpu cpu) {
+            this.cpu = cpu;
+        }
+
+        /**
+         * The emulator's CPU.  Only safe to use while the instance is not running.
+         */
+        public Cpu getCpu() {
+            return cpu;
+        }
+
+        public synchronized boolean isRunning() {
+            return run != null;
+        }
+
+        synchronized CompletableFuture<Void> run(int frames) {
+            if (run != null) {
+                throw new IllegalStateException("Instance is already running");
+            }
+
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            run = future;
+            remaining = frames;
+            schedule();
+            return future;
+        }
+
+        private void schedule() {
+            if (remaining <= 0) {
+                finish(null);
+                return;
+            }
+
+            try {
+                executor.execute(threadPerEmulator ? this::runToEnd : this::slice);
+            } catch (RejectedExecutionException exception) {
+                finish(exception);
+            }
+        }
+
+        /**
+         * Runs one slice on a pool thread, then queues the next one
+         */
+        private void slice() {
+            if (runSlice()) {
+                schedule();
+            }
+        }
+
+        /**
+         * Runs slices one after another on this thread until the run ends or the pool is closed
+         */
+        private void runToEnd() {
+            while (remaining > 0) {
+                if (executor.isShutdown()) {
+                    finish(new RejectedExecutionException("Pool is closed"));
+                    return;
+                }
+
+                if (!runSlice()) {
+                    return;
+                }
+            }
+
+            finish(null);
+        }
+
+        /**
+         * Runs one slice and updates the statistics.  Returns false if the run failed, having
+         * already completed it.
+         */
+        private boolean runSlice() {
+            long startFrames = cpu.getFrameCount();
+            long startInstructions = cpu.getInstructionCount();
+            Cpu.StopReason reason;
+
+            try {
+                reason = cpu.runFrames(Math.min(FRAMES_PER_SLICE, remaining));
+            } catch (RuntimeException exception) {
+                finish(exception);
+                return false;
+            }
+
+            frames.add(cpu.getFrameCount() - startFrames);
+            instructions.add(cpu.getInstructionCount() - startInstructions);
+
+            if (reason == Cpu.StopReason.STOPPED && executor.isShutdown()) {
+                finish(new RejectedExecutionException("Pool is closed"));
+                return false;
+            }
+
+            // A breakpoint or stop request ends the run early
+            remaining = reason == Cpu.StopReason.FRAMES ? remaining - FRAMES_PER_SLICE : 0;
+            return true;
+        }
+
+        private void finish(Throwable failure) {
+            CompletableFuture<Void> future;
+
+            synchronized (this) {
+                future = run;
+                run = null;
+            }
+
+            if (failure == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private static class EmulatorThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "emulator-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package javaboy.rom;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The cartridge header at 0x0100 - 0x014F of a ROM image.  Only the fields needed to set up
+ * the cartridge memory are decoded.
+ */
+public class CartridgeHeader {
+
+    private static final int TITLE_ADDRESS = 0x0134;
+    private static final int TITLE_LENGTH = 16;
+    private static final int CARTRIDGE_TYPE_ADDRESS = 0x0147;
+    private static final int ROM_SIZE_ADDRESS = 0x0148;
+    private static final int RAM_SIZE_ADDRESS = 0x0149;
+
+    public static final int HEADER_END = 0x0150;
+
+    private static final int[] RAM_BANKS = {0, 1, 1, 4, 16, 8};
+
+    private final String title;
+    private final int type;
+    private final int romBanks;
+    private final int ramBanks;
+
+    private CartridgeHeader(String title, int type, int romBanks, int ramBanks) {
+        this.title = title;
+        this.type = type;
+        this.romBanks = romBanks;
+        this.ramBanks = ramBanks;
+    }
+
+    /**
+     * Decodes the header of a ROM image.  An unknown ROM size is taken from the image length
+     * and an unknown RAM size means no RAM.
+     */
+    public static CartridgeHeader parse(ByteBuffer image) {
+        if (image.limit() < HEADER_END) {
+            throw new IllegalArgumentException("ROM image of " + image.limit() + " bytes is too small for a cartridge header");
+        }
+
+        byte[] titleBytes = new byte[TITLE_LENGTH];
+        int titleLength = 0;
+        while (titleLength < TITLE_LENGTH) {
+            byte character = image.get(TITLE_ADDRESS + titleLength);
+            if (character < 0x20 || character >= 0x7F) {
+                break;
+            }
+            titleBytes[titleLength++] = character;
+        }
+        String title = new String(titleBytes, 0, titleLength, StandardCharsets.US_ASCII);
+
+        int type = image.get(CARTRIDGE_TYPE_ADDRESS) & 0xFF;
+        int romSize = image.get(ROM_SIZE_ADDRESS) & 0xFF;
+        int ramSize = image.get(RAM_SIZE_ADDRESS) & 0xFF;
+
+        int romBanks;
+        if (romSize <= 0x08) {
+            romBanks = 2 << romSize;
+        } else if (romSize >= 0x52 && romSize <= 0x54) {
+            romBanks = new int[]{72, 80, 96}[romSize - 0x52];
+        } else {
+            romBanks = Math.max(2, (image.limit() + 0x3FFF) / 0x4000);
+        }
+
+        int ramBanks = ramSize < RAM_BANKS.length ? RAM_BANKS[ramSize] : 0;
+
+        return new CartridgeHeader(title, type, romBanks, ramBanks);
+    }
+
+    public static CartridgeHeader parse(byte[] image) {
+        return parse(ByteBuffer.wrap(image));
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * Number of 16Kb ROM banks
+     */
+    public int getRomBanks() {
+        return romBanks;
+    }
+
+    /**
+     * Number of 8Kb RAM banks
+     */
+    public int getRamBanks() {
+        return ramBanks;
+    }
+
+    @Override
+    public String toString() {
+        return "'" + title + "'.  " + romBanks + " ROM banks, " + romBanks * 16 + "Kb.  " + ramBanks + " RAM banks. Type: " + String.format("%02X", type);
+    }
+}
@@ -0,0 +1,37 @@
+package javaboy.rom;
+
+import java.util.Arrays;
+
+/**
+ * A cartridge ROM image and its decoded header.  The data is sized to the number of ROM banks
+ * in the header and is never written, so one image can be shared by any number of emulators.
+ */
+public class RomImage {
+
+    private static final int ROM_BANK_SIZE = 0x4000;
+
+    private final CartridgeHeader header;
+    private final byte[] data;
+
+    public RomImage(byte[] image) {
+        this(CartridgeHeader.parse(image), image);
+    }
+
+    public RomImage(CartridgeHeader header, byte[] image) {
+        int size = Math.max(header.getRomBanks(), (image.length + ROM_BANK_SIZE - 1) / ROM_BANK_SIZE) * ROM_BANK_SIZE;
+
+        this.header = header;
+        this.data = image.length == size ? image : Arrays.copyOf(image, size);
+    }
+
+    public CartridgeHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * The ROM contents, a whole number of banks long.  Must not be modified.
+     */
+    public byte[] getData() {
+        return data;
+    }
+}
@@ -1,30 +1,93 @@
 package javaboy.rom.loader;
 
-import javaboy.memory.Memory;
+import javaboy.rom.CartridgeHeader;
+import javaboy.rom.RomImage;
 import org.pmw.tinylog.Logger;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Loads ROM images.  Each file is read once; every emulator loading the same file gets the same
+ * {@link RomImage}, until the file changes on disk.  Images are cached by soft reference, and
+ * each {@link javaboy.Cpu} holds its image, so an image is only dropped once no emulator uses it
+ * and memory runs short, rather than being kept for the life of the JVM.
+ */
 public class RomLoader {
 
-    public static Memory loadRom(String filepath, int size) {
+    private static final ConcurrentMap<Path, LoadedImage> images = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<RomImage> collected = new ReferenceQueue<>();
+
+    public static RomImage loadRom(String filepath) {
         try {
-            InputStream is = new FileInputStream(new File(filepath));
+            Path path = Paths.get(filepath).toRealPath();
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+            removeCollected();
+
+            // The image may be collected between caching it and reading it back
+            RomImage image;
+            do {
+                image = images.compute(path, (key, loaded) ->
+                        loaded != null && loaded.lastModified == lastModified && loaded.get() != null
+                                ? loaded : new LoadedImage(key, load(key), lastModified)).get();
+            } while (image == null);
+
+            return image;
+        } catch (IOException | UncheckedIOException exception) {
+            Logger.debug("Error opening ROM image");
+            throw new IllegalArgumentException("Cannot load ROM image " + filepath, exception);
+        }
+    }
+
+    /**
+     * Forgets all loaded images
+     */
+    public static void clear() {
+        images.clear();
+    }
 
-            byte[] data = new byte[size];   // Recreate the ROM array with the correct size
+    /**
+     * Removes the entries of images the garbage collector has dropped
+     */
+    private static void removeCollected() {
+        Reference<? extends RomImage> reference;
 
-            //noinspection ResultOfMethodCallIgnored
-            is.read(data);
-            is.close();
+        while ((reference = collected.poll()) != null) {
+            LoadedImage loaded = (LoadedImage) reference;
+            images.remove(loaded.path, loaded);
+        }
+    }
+
+    private static RomImage load(Path path) {
+        try {
+            byte[] data = Files.readAllBytes(path);
+            CartridgeHeader header = CartridgeHeader.parse(data);
 
-            Logger.debug("Loaded ROM 'bgblogo.gb'.  2 ROM banks, 32Kb.  0 RAM banks. Type: ROM Only");
-            return new Memory(0x0000, data);
+            Logger.debug("Loaded ROM " + header);
+            return new RomImage(header, data);
         } catch (IOException exception) {
-            Logger.debug("Error opening ROM image");
-            throw new IllegalArgumentException();
+            throw new UncheckedIOException(exception);
         }
     }
 
+    private static class LoadedImage extends SoftReference<RomImage> {
+
+        private final Path path;
+        private final long lastModified;
 
+        LoadedImage(Path path, RomImage image, long lastModified) {
+            super(image, collected);
+            this.path = path;
+            this.lastModified = lastModified;
+        }
+    }
 
 }
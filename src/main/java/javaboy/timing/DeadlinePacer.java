@@ -0,0 +1,57 @@
+package javaboy.timing;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces frames against absolute deadlines, so that time spent emulating a frame and oversleeping
+ * are both absorbed by the wait for the next one rather than accumulating as drift.
+ */
+class DeadlinePacer implements FramePacer {
+
+    /**
+     * How far emulation may fall behind before the deadline is moved up to the present, rather
+     * than running flat out to catch up
+     */
+    private static final int MAX_FRAMES_BEHIND = 5;
+
+    private final long frameNanos;
+    private long deadline;
+    private boolean started;
+
+    DeadlinePacer(long frameNanos) {
+        this.frameNanos = frameNanos;
+    }
+
+    @Override
+    public void frameCompleted() {
+        long now = System.nanoTime();
+
+        if (!started) {
+            started = true;
+            deadline = now + frameNanos;
+            return;
+        }
+
+        if (now - deadline > MAX_FRAMES_BEHIND * frameNanos) {
+            deadline = now + frameNanos;
+            return;
+        }
+
+        // An interrupt ends the wait early instead of spinning, and is left set for the caller
+        while (deadline - now > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(deadline - now);
+            now = System.nanoTime();
+        }
+
+        deadline += frameNanos;
+    }
+
+    @Override
+    public void reset() {
+        started = false;
+    }
+
+    long getFrameNanos() {
+        return frameNanos;
+    }
+}
@@ -0,0 +1,46 @@
+package javaboy.timing;
+
+/**
+ * Decides how long the emulation thread waits after each frame.  The CPU calls
+ * {@link #frameCompleted()} once per frame, at the end of the last VBlank line as LY wraps back
+ * to 0.
+ */
+public interface FramePacer {
+
+    /**
+     * Frames per second of the Gameboy LCD, 4194304 Hz / 70224 cycles per frame
+     */
+    double FRAME_RATE = 4194304.0 / 70224.0;
+
+    void frameCompleted();
+
+    /**
+     * Forgets any deadline, for example after the emulator was paused
+     */
+    void reset();
+
+    /**
+     * Runs at the speed of the real hardware
+     */
+    static FramePacer realTime() {
+        return speed(1);
+    }
+
+    /**
+     * Runs at the given multiple of the speed of the real hardware
+     */
+    static FramePacer speed(double multiplier) {
+        if (!(multiplier > 0)) {
+            throw new IllegalArgumentException("Speed multiplier must be positive, was " + multiplier);
+        }
+
+        return new DeadlinePacer((long) (1_000_000_000L / (FRAME_RATE * multiplier)));
+    }
+
+    /**
+     * Never waits
+     */
+    static FramePacer unlimited() {
+        return UnlimitedPacer.INSTANCE;
+    }
+}
@@ -0,0 +1,82 @@
+package javaboy.timing;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the clock cycle deadline of each of a fixed set of events, so that the CPU can run
+ * without any per-instruction bookkeeping until the earliest one is due.  Events are identified
+ * by small integers, and an event has at most one pending deadline.
+ */
+public class Scheduler {
+
+    public static final long NEVER = Long.MAX_VALUE;
+
+    private final long[] deadlines;
+
+    /**
+     * The earliest deadline and its event, kept up to date on every change
+     */
+    private long nextDeadline = NEVER;
+    private int nextEvent = -1;
+
+    public Scheduler(int events) {
+        if (events < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        deadlines = new long[events];
+        Arrays.fill(deadlines, NEVER);
+    }
+
+    public void schedule(int event, long deadline) {
+        deadlines[event] = deadline;
+
+        if (deadline <= nextDeadline) {
+            nextDeadline = deadline;
+            nextEvent = event;
+        } else if (event == nextEvent) {
+            findNext();
+        }
+    }
+
+    public void cancel(int event) {
+        schedule(event, NEVER);
+    }
+
+    public long deadline(int event) {
+        return deadlines[event];
+    }
+
+    /**
+     * The cycle at which the earliest event is due, {@link #NEVER} if none is pending
+     */
+    public long nextDeadline() {
+        return nextDeadline;
+    }
+
+    /**
+     * The earliest event if it is due at the given cycle, otherwise -1.  The event stays pending
+     * until it is rescheduled or cancelled.
+     */
+    public int due(long now) {
+        return now >= nextDeadline ? nextEvent : -1;
+    }
+
+    public void clear() {
+        Arrays.fill(deadlines, NEVER);
+        nextDeadline = NEVER;
+        nextEvent = -1;
+    }
+
+    private void findNext() {
+        nextDeadline = NEVER;
+        nextEvent = -1;
+
+        for (int event = 0; event < deadlines.length; event++) {
+            if (deadlines[event] < nextDeadline) {
+                nextDeadline = deadlines[event];
+                nextEvent = event;
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package javaboy.timing;
+
+/**
+ * Runs as fast as the host allows
+ */
+class UnlimitedPacer implements FramePacer {
+
+    static final UnlimitedPacer INSTANCE = new UnlimitedPacer();
+
+    private UnlimitedPacer() {
+    }
+
+    @Override
+    public void frameCompleted() {
+    }
+
+    @Override
+    public void reset() {
+    }
+}
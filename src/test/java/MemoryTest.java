@@ -67,4 +67,19 @@ public class MemoryTest {
         }
     }
 
+    @Test
+    public void byteAccessTest() {
+        Memory memory = new Memory(0xC000, 0x10);
+
+        memory.writeByte(0xC000, 0x1FF);
+        memory.writeByte(0xC00F, 0x80);
+
+        assertThat(memory.readByte(0xC000), is(0xFF));
+        assertThat(memory.readByte(0xC00F), is(0x80));
+        assertThat(memory.read(new Short(0xC00F)).intValue(), is(0x80));
+
+        memory.read(new Short(0xC001)).setValue(0x42);
+        assertThat(memory.readByte(0xC001), is(0x42));
+    }
+
 }
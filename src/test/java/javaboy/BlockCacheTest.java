@@ -0,0 +1,161 @@
+package javaboy;
+
+import javaboy.lang.Byte;
+import javaboy.lang.Short;
+import javaboy.memory.MemoryBankController;
+import org.junit.Test;
+
+import static javaboy.TestRoms.cpu;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class BlockCacheTest {
+
+    private static void write(Cpu cpu, int address, int... data) {
+        for (int i = 0; i < data.length; i++) {
+            cpu.write(new Short(address + i), new Byte(data[i]));
+        }
+    }
+
+    private static int read(Cpu cpu, int address) {
+        return cpu.read(new Short(address)).intValue();
+    }
+
+    @Test
+    public void testCodeRewrittenBetweenCalls() {
+        Cpu cpu = cpu(
+                0x21, 0x00, 0xC0,   // 0x0100: LD HL, 0xC000
+                0x36, 0x3C,         // 0x0103: LD (HL), INC A
+                0x23,               // 0x0105: INC HL
+                0x36, 0xC9,         // 0x0106: LD (HL), RET
+                0xCD, 0x00, 0xC0,   // 0x0108: CALL 0xC000
+                0xEA, 0x00, 0xC1,   // 0x010B: LD (0xC100), A
+                0x21, 0x00, 0xC0,   // 0x010E: LD HL, 0xC000
+                0x36, 0x3D,         // 0x0111: LD (HL), DEC A
+                0xCD, 0x00, 0xC0,   // 0x0113: CALL 0xC000
+                0xEA, 0x01, 0xC1,   // 0x0116: LD (0xC101), A
+                0x18, 0xFE          // 0x0119: JR 0x0119
+        );
+
+        cpu.runCycles(1000);
+
+        assertThat(read(cpu, 0xC100), is(0x02));
+        assertThat(read(cpu, 0xC101), is(0x01));
+    }
+
+    @Test
+    public void testCodeRewritingItself() {
+        Cpu cpu = cpu(
+                0xCD, 0x00, 0xC0,   // 0x0100: CALL 0xC000
+                0xEA, 0x00, 0xC1,   // 0x0103: LD (0xC100), A
+                0x18, 0xFE          // 0x0106: JR 0x0106
+        );
+        write(cpu, 0xC000,
+                0x21, 0x05, 0xC0,   // 0xC000: LD HL, 0xC005
+                0x36, 0x3D,         // 0xC003: LD (HL), DEC A
+                0x3C,               // 0xC005: INC A, rewritten before it runs
+                0xC9                // 0xC006: RET
+        );
+
+        cpu.runCycles(1000);
+
+        assertThat(read(cpu, 0xC100), is(0x00));
+    }
+
+    @Test
+    public void testRomBankSwitch() {
+        byte[] image = TestRoms.cartridge(0x01, 0, 4);
+
+        // The same address holds INC A in bank 1 and DEC A, DEC A in bank 2
+        image[MemoryBankController.ROM_BANK_SIZE] = 0x3C;
+        image[MemoryBankController.ROM_BANK_SIZE + 1] = (byte) 0xC9;
+        image[2 * MemoryBankController.ROM_BANK_SIZE] = 0x3D;
+        image[2 * MemoryBankController.ROM_BANK_SIZE + 1] = 0x3D;
+        image[2 * MemoryBankController.ROM_BANK_SIZE + 2] = (byte) 0xC9;
+
+        Cpu cpu = cpu(image,
+                0xCD, 0x00, 0x40,   // 0x0100: CALL 0x4000
+                0xEA, 0x00, 0xC1,   // 0x0103: LD (0xC100), A
+                0x3E, 0x02,         // 0x0106: LD A, 2
+                0xEA, 0x00, 0x20,   // 0x0108: LD (0x2000), A
+                0xCD, 0x00, 0x40,   // 0x010B: CALL 0x4000
+                0xEA, 0x01, 0xC1,   // 0x010E: LD (0xC101), A
+                0x18, 0xFE          // 0x0111: JR 0x0111
+        );
+
+        cpu.runCycles(1000);
+
+        assertThat(read(cpu, 0xC100), is(0x02));
+        assertThat(read(cpu, 0xC101), is(0x00));
+    }
+
+    @Test
+    public void testCompiledBlocksMatchStepping() {
+        int[] program = {
+                0x3E, 0x01,         // 0x0100: LD A, 1
+                0xE0, 0xFF,         // 0x0102: LDH (0xFF), A to enable VBlank
+                0xFB,               // 0x0104: EI
+                0x21, 0x00, 0xC0,   // 0x0105: LD HL, 0xC000
+                0x3C,               // 0x0108: INC A
+                0x80,               // 0x0109: ADD A, B
+                0xA9,               // 0x010A: XOR C
+                0x77,               // 0x010B: LD (HL), A
+                0x2C,               // 0x010C: INC L
+                0xCB, 0x37,         // 0x010D: SWAP A
+                0x18, 0xF7          // 0x010F: JR 0x0108
+        };
+        byte[] image = TestRoms.bytes(program);
+        image[0x0040] = 0x04;           // VBlank: INC B
+        image[0x0041] = (byte) 0xD9;    // RETI
+
+        Cpu compiled = cpu(image.clone());
+        Cpu stepped = cpu(image.clone());
+
+        // Long enough for the loop to be compiled
+        long cycles = 20L * GraphicsConstants.CYCLES_PER_LINE * GraphicsConstants.LINES_PER_FRAME;
+        compiled.runCycles(cycles);
+        while (stepped.getCycleCount() < cycles) {
+            stepped.step();
+        }
+
+        assertThat(compiled.getCycleCount(), is(stepped.getCycleCount()));
+        assertThat(compiled.getInstructionCount(), is(stepped.getInstructionCount()));
+        for (int address = 0xC000; address < 0xC100; address++) {
+            assertThat(read(compiled, address), is(read(stepped, address)));
+        }
+    }
+
+    @Test
+    public void testPollingLoopsMatchStepping() {
+        int[] program = {
+                0xF0, 0x44,         // 0x0100: LDH A, (LY)
+                0xFE, 0x90,         // 0x0102: CP 0x90
+                0x20, 0xFA,         // 0x0104: JR NZ, 0x0100 until VBlank
+                0xF0, 0x41,         // 0x0106: LDH A, (STAT)
+                0xE6, 0x03,         // 0x0108: AND 3
+                0xFE, 0x03,         // 0x010A: CP 3
+                0x20, 0xF8,         // 0x010C: JR NZ, 0x0106 until pixel transfer
+                0x04,               // 0x010E: INC B
+                0xF0, 0x41,         // 0x010F: LDH A, (STAT)
+                0xCB, 0x4F,         // 0x0111: BIT 1, A
+                0x20, 0xFA,         // 0x0113: JR NZ, 0x010F until HBlank
+                0x78,               // 0x0115: LD A, B
+                0xEA, 0x00, 0xC1,   // 0x0116: LD (0xC100), A
+                0x18, 0xEB          // 0x0119: JR 0x0106
+        };
+
+        Cpu skipped = cpu(program);
+        Cpu stepped = cpu(program);
+
+        long cycles = 3L * GraphicsConstants.CYCLES_PER_LINE * GraphicsConstants.LINES_PER_FRAME;
+        skipped.runCycles(cycles);
+        while (stepped.getCycleCount() < cycles) {
+            stepped.step();
+        }
+
+        assertThat(skipped.getCycleCount(), is(stepped.getCycleCount()));
+        assertThat(skipped.getInstructionCount(), is(stepped.getInstructionCount()));
+        assertThat(read(skipped, 0xC100), is(read(stepped, 0xC100)));
+    }
+
+}
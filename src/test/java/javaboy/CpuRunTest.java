@@ -0,0 +1,150 @@
+package javaboy;
+
+import javaboy.timing.FramePacer;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static javaboy.TestRoms.cpu;
+import static javaboy.TestRoms.haltForever;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class CpuRunTest {
+
+    /**
+     * Stops the CPU from the pacer once the given number of frames have completed
+     */
+    private static void stopAfter(Cpu cpu, int frames) {
+        cpu.setFramePacer(new FramePacer() {
+            @Override
+            public void frameCompleted() {
+                if (cpu.getFrameCount() == frames) {
+                    cpu.stop();
+                }
+            }
+
+            @Override
+            public void reset() {
+            }
+        });
+    }
+
+    @Test
+    public void testRunCycles() {
+        Cpu cpu = cpu();
+
+        assertThat(cpu.runCycles(1000), is(Cpu.StopReason.CYCLES));
+        assertThat(cpu.getCycleCount(), is(1000L));
+
+        // Ends at the end of the instruction that reaches the budget
+        assertThat(cpu.runCycles(2), is(Cpu.StopReason.CYCLES));
+        assertThat(cpu.getCycleCount(), is(1004L));
+    }
+
+    @Test
+    public void testRunFrames() {
+        Cpu cpu = cpu();
+
+        assertThat(cpu.runFrames(2), is(Cpu.StopReason.FRAMES));
+        assertThat(cpu.getFrameCount(), is(2L));
+        assertThat(cpu.getCycleCount(), is(2L * GraphicsConstants.CYCLES_PER_LINE * GraphicsConstants.LINES_PER_FRAME));
+    }
+
+    @Test
+    public void testBreakpoint() {
+        Cpu cpu = cpu(
+                0x00,               // 0x0100: NOP
+                0x3C,               // 0x0101: INC A
+                0x18, 0xFD          // 0x0102: JR 0x0101
+        );
+        cpu.addBreakpoint(0x0101);
+
+        assertThat(cpu.runFrames(1), is(Cpu.StopReason.BREAKPOINT));
+        assertThat(cpu.getInstructionCount(), is(1L));
+
+        // Running again moves on from the breakpoint and stops the next time round
+        assertThat(cpu.runFrames(1), is(Cpu.StopReason.BREAKPOINT));
+        assertThat(cpu.getInstructionCount(), is(3L));
+
+        cpu.removeBreakpoint(0x0101);
+        assertThat(cpu.runCycles(100), is(Cpu.StopReason.CYCLES));
+    }
+
+    @Test
+    public void testStop() {
+        Cpu cpu = cpu();
+
+        cpu.stop();
+        assertThat(cpu.runFrames(1), is(Cpu.StopReason.STOPPED));
+        assertThat(cpu.getCycleCount(), is(0L));
+
+        // The request is used up by the run it stopped
+        assertThat(cpu.runFrames(1), is(Cpu.StopReason.FRAMES));
+    }
+
+    @Test
+    public void testStopExecute() {
+        Cpu cpu = cpu();
+        stopAfter(cpu, 1);
+
+        cpu.execute();
+        assertThat(cpu.getFrameCount(), is(1L));
+    }
+
+    @Test(timeout = 10000)
+    public void testRunCyclesWhileHalted() {
+        Cpu cpu = cpu(haltForever());
+
+        assertThat(cpu.runCycles(100), is(Cpu.StopReason.CYCLES));
+        assertThat(cpu.getCycleCount(), is(100L));
+
+        assertThat(cpu.runCycles(2), is(Cpu.StopReason.CYCLES));
+        assertThat(cpu.getCycleCount(), is(104L));
+    }
+
+    @Test(timeout = 10000)
+    public void testRunFramesWhileHalted() {
+        Cpu cpu = cpu(haltForever());
+
+        assertThat(cpu.runFrames(1), is(Cpu.StopReason.FRAMES));
+        assertThat(cpu.getFrameCount(), is(1L));
+        assertThat(cpu.getCycleCount(), is((long) GraphicsConstants.CYCLES_PER_LINE * GraphicsConstants.LINES_PER_FRAME));
+    }
+
+    @Test(timeout = 10000)
+    public void testRunFramesHaltedBeforeReset() {
+        Cpu cpu = new Cpu(TestRoms.image(haltForever()));
+
+        assertThat(cpu.runFrames(1), is(Cpu.StopReason.FRAMES));
+        assertThat(cpu.getFrameCount(), is(1L));
+        assertThat(cpu.getCycleCount(), is((long) GraphicsConstants.CYCLES_PER_LINE * GraphicsConstants.LINES_PER_FRAME));
+    }
+
+    @Test(timeout = 10000)
+    public void testStopWhileHalted() {
+        Cpu cpu = cpu(haltForever());
+        stopAfter(cpu, 2);
+
+        cpu.execute();
+        assertThat(cpu.getFrameCount(), is(2L));
+    }
+
+    @Test
+    public void testRunAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        Cpu cpu = cpu(BenchmarkRoms.instructionMix());
+
+        // Warm up so that decoding, compiling and class loading do not count
+        cpu.runCycles(20_000_000);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long instructions = cpu.getInstructionCount();
+        cpu.runCycles(20_000_000);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat("Allocated over " + (cpu.getInstructionCount() - instructions) + " instructions", allocated, is(0L));
+    }
+
+}
@@ -0,0 +1,141 @@
+package javaboy;
+
+import javaboy.lang.Short;
+import org.junit.Test;
+
+import static javaboy.TestRoms.cpu;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class CpuTimingTest {
+
+    @Test
+    public void testInstructionCycles() {
+        Cpu cpu = cpu(
+                0x00,               // NOP
+                0x20, 0x05,         // JR NZ, not taken as Z is set after reset
+                0x28, 0x00,         // JR Z, taken
+                0xCD, 0x20, 0x01,   // CALL 0x0120
+                0xCB, 0x37,         // SWAP A
+                0xCB, 0x46,         // BIT 0, (HL)
+                0xCB, 0x06,         // RLC (HL)
+                0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+                0xC9                // 0x0120: RET
+        );
+
+        assertThat(cpu.step(), is(4));
+        assertThat(cpu.step(), is(8));
+        assertThat(cpu.step(), is(12));
+        assertThat(cpu.step(), is(24));
+        assertThat(cpu.step(), is(16));
+        assertThat(cpu.step(), is(8));
+        assertThat(cpu.step(), is(12));
+        assertThat(cpu.step(), is(16));
+        assertThat(cpu.getCycleCount(), is(100L));
+    }
+
+    @Test
+    public void testDividerAndLine() {
+        Cpu cpu = cpu();
+
+        // 114 NOPs take one line
+        for (int i = 0; i < 113; i++) {
+            cpu.step();
+        }
+        assertThat(cpu.read(new Short(LcdController.LY_ADDRESS)).intValue(), is(0));
+        assertThat(cpu.read(new Short(Divider.DIV_ADDRESS)).intValue(), is(1));
+
+        cpu.step();
+        assertThat(cpu.read(new Short(LcdController.LY_ADDRESS)).intValue(), is(1));
+        assertThat(cpu.getCycleCount(), is((long) GraphicsConstants.CYCLES_PER_LINE));
+    }
+
+    @Test
+    public void testTimer() {
+        Cpu cpu = cpu(
+                0x3E, 0xF0, 0xE0, 0x06,     // TMA = 0xF0
+                0x3E, 0xFE, 0xE0, 0x05,     // TIMA = 0xFE
+                0x3E, 0x05, 0xE0, 0x07      // TAC = 0x05, start at 16 cycles per tick
+        );
+
+        for (int i = 0; i < 6; i++) {
+            cpu.step();
+        }
+        assertThat(cpu.getCycleCount(), is(60L));
+        assertThat(cpu.read(new Short(Timer.TIMA_ADDRESS)).intValue(), is(0xFE));
+
+        // The write to TAC happened at cycle 48, so TIMA overflows at cycle 80
+        for (int i = 0; i < 4; i++) {
+            cpu.step();
+        }
+        assertThat(cpu.read(new Short(Timer.TIMA_ADDRESS)).intValue(), is(0xFF));
+
+        cpu.step();
+        assertThat(cpu.read(new Short(Timer.TIMA_ADDRESS)).intValue(), is(0xF0));
+
+        for (int i = 0; i < 4; i++) {
+            cpu.step();
+        }
+        assertThat(cpu.read(new Short(Timer.TIMA_ADDRESS)).intValue(), is(0xF1));
+    }
+
+    @Test
+    public void testFrameLength() {
+        Cpu cpu = cpu();
+        int[] frames = new int[1];
+        cpu.setDisplay(frameBuffer -> frames[0]++);
+
+        // Two frames, as every other frame is skipped
+        while (cpu.getCycleCount() < 2 * 70224) {
+            cpu.step();
+        }
+
+        assertThat(frames[0], is(1));
+        assertThat(cpu.read(new Short(LcdController.LY_ADDRESS)).intValue(), is(0));
+    }
+
+    @Test
+    public void testHaltUntilInterrupt() {
+        Cpu cpu = cpu(
+                0xAF, 0xE0, 0x0F,           // IF = 0
+                0x3E, 0x05, 0xE0, 0x07,     // TAC = 0x05, 16 cycles per tick
+                0x3E, 0x04, 0xE0, 0xFF,     // IE = TIMA
+                0x76                        // HALT
+        );
+
+        for (int i = 0; i < 6; i++) {
+            cpu.step();
+        }
+        assertThat(cpu.getCycleCount(), is(56L));
+
+        // TAC was written at cycle 24, so TIMA overflows 256 ticks later at cycle 4120.  The
+        // interrupt is taken after the 4 cycles of HALT.
+        assertThat(cpu.step(), is(4120 - 56 + 4 + 20));
+        assertThat(cpu.getCycleCount(), is(4144L));
+    }
+
+    @Test
+    public void testHaltWithinBoundedRuns() {
+        Cpu cpu = cpu(
+                0xAF, 0xE0, 0x0F,           // IF = 0
+                0x3E, 0x04, 0xE0, 0x07,     // TAC = 0x04, 1024 cycles per tick
+                0x3E, 0x04, 0xE0, 0xFF,     // IE = TIMA
+                0x76                        // HALT
+        );
+        long overflow = 24 + 256 * 1024;
+
+        // The clock stops at each limit while halted, rather than at the overflow
+        assertThat(cpu.runCycles(100), is(Cpu.StopReason.CYCLES));
+        assertThat(cpu.getCycleCount(), is(100L));
+        assertThat(cpu.runFrames(1), is(Cpu.StopReason.FRAMES));
+        assertThat(cpu.getCycleCount(), is((long) GraphicsConstants.CYCLES_PER_LINE * GraphicsConstants.LINES_PER_FRAME));
+
+        assertThat(cpu.runCycles(overflow - cpu.getCycleCount()), is(Cpu.StopReason.CYCLES));
+        assertThat(cpu.getCycleCount(), is(overflow));
+
+        // Then wakes for the interrupt the overflow raised, taking it after the 4 cycles of HALT
+        assertThat(cpu.runCycles(1), is(Cpu.StopReason.CYCLES));
+        assertThat(cpu.getCycleCount(), is(overflow + 4 + 20));
+    }
+
+}
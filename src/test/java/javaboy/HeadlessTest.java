@@ -0,0 +1,31 @@
+package javaboy;
+
+import javaboy.graphics.GraphicsChip;
+import javaboy.rom.loader.RomLoader;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class HeadlessTest {
+
+    @Test
+    public void testFrameDelivery() {
+        Cpu cpu = new Cpu(RomLoader.loadRom("bgblogo.gb"));
+        List<int[]> frames = new ArrayList<>();
+
+        cpu.reset();
+
+        assertThat(cpu.getFrameBuffer().length, is(GraphicsChip.WIDTH * GraphicsChip.HEIGHT));
+
+        // Every other frame is skipped
+        assertThat(cpu.graphicsChip.finishFrame(null), is(true));
+        assertThat(cpu.graphicsChip.finishFrame(null), is(false));
+        assertThat(cpu.graphicsChip.finishFrame(frameBuffer -> frames.add(frameBuffer.clone())), is(true));
+        assertThat(frames.size(), is(1));
+    }
+
+}
@@ -0,0 +1,35 @@
+package javaboy;
+
+import javaboy.JoypadController.Button;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class JoypadControllerTest {
+
+    private final JoypadController joypad = new JoypadController();
+
+    @Test
+    public void testRead() {
+        joypad.setPressed(Button.LEFT.getBitMask() | Button.START.getBitMask());
+
+        assertThat(joypad.read(), is(0xFF));
+
+        joypad.write(0x20);  // Directions
+        assertThat(joypad.read(), is(0xED));
+
+        joypad.write(0x10);  // Buttons
+        assertThat(joypad.read(), is(0xD7));
+    }
+
+    @Test
+    public void testPressOnlyInterruptsWhenSelected() {
+        joypad.write(0x10);  // Buttons
+
+        assertThat(joypad.setPressed(Button.UP.getBitMask()), is(false));
+        assertThat(joypad.setPressed(Button.UP.getBitMask() | Button.A.getBitMask()), is(true));
+        assertThat(joypad.setPressed(Button.A.getBitMask()), is(false));
+    }
+
+}
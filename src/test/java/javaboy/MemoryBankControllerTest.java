@@ -0,0 +1,143 @@
+package javaboy;
+
+import javaboy.graphics.GraphicsChip;
+import javaboy.memory.Mbc1Controller;
+import javaboy.memory.Mbc3Controller;
+import javaboy.memory.Mbc5Controller;
+import javaboy.memory.MemoryBankController;
+import javaboy.memory.MemoryController;
+import javaboy.memory.RomOnlyController;
+import javaboy.rom.RomImage;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.assertThat;
+
+public class MemoryBankControllerTest {
+
+    private static RomImage rom(int type, int ramSize, int banks) {
+        byte[] image = TestRoms.cartridge(type, ramSize, banks);
+        for (int bank = 0; bank < banks; bank++) {
+            image[bank * MemoryBankController.ROM_BANK_SIZE + 0x1000] = (byte) bank;
+            image[bank * MemoryBankController.ROM_BANK_SIZE + 0x1001] = (byte) (bank >> 8);
+        }
+        return TestRoms.image(image);
+    }
+
+    private static MemoryController memory(MemoryBankController cartridge) {
+        return new MemoryController(new GraphicsChip(null), null, cartridge);
+    }
+
+    private static int bankAt(MemoryController memory, int address) {
+        return memory.readByte(address + 0x1000) | (memory.readByte(address + 0x1001) << 8);
+    }
+
+    @Test
+    public void testCartridgeType() {
+        assertThat(MemoryBankController.create(rom(0x00, 0, 2)), instanceOf(RomOnlyController.class));
+        assertThat(MemoryBankController.create(rom(0x03, 3, 4)), instanceOf(Mbc1Controller.class));
+        assertThat(MemoryBankController.create(rom(0x13, 3, 4)), instanceOf(Mbc3Controller.class));
+        assertThat(MemoryBankController.create(rom(0x1B, 4, 4)), instanceOf(Mbc5Controller.class));
+    }
+
+    @Test
+    public void testRomOnly() {
+        MemoryController memory = memory(MemoryBankController.create(rom(0x00, 0, 2)));
+
+        assertThat(bankAt(memory, 0x0000), is(0));
+        assertThat(bankAt(memory, 0x4000), is(1));
+
+        memory.writeByte(0x2000, 0x00);
+        memory.writeByte(0x1000, 0x42);
+        assertThat(bankAt(memory, 0x4000), is(1));
+        assertThat(memory.readByte(0x1000), is(0));
+        assertThat(memory.readByte(0xA000), is(0xFF));
+    }
+
+    @Test
+    public void testMbc1RomBanks() {
+        MemoryController memory = memory(MemoryBankController.create(rom(0x01, 0, 128)));
+
+        memory.writeByte(0x2000, 0x05);
+        assertThat(bankAt(memory, 0x4000), is(5));
+
+        memory.writeByte(0x2000, 0x00);
+        assertThat(bankAt(memory, 0x4000), is(1));
+
+        memory.writeByte(0x2000, 0x03);
+        memory.writeByte(0x4000, 0x02);
+        assertThat(bankAt(memory, 0x4000), is(0x43));
+        assertThat(bankAt(memory, 0x0000), is(0));
+
+        memory.writeByte(0x6000, 0x01);
+        assertThat(bankAt(memory, 0x0000), is(0x40));
+    }
+
+    @Test
+    public void testMbc1Ram() {
+        MemoryController memory = memory(MemoryBankController.create(rom(0x03, 3, 4)));
+
+        memory.writeByte(0xA000, 0x12);
+        assertThat(memory.readByte(0xA000), is(0xFF));
+
+        memory.writeByte(0x0000, 0x0A);
+        memory.writeByte(0xA000, 0x12);
+        memory.writeByte(0x6000, 0x01);
+        memory.writeByte(0x4000, 0x01);
+        memory.writeByte(0xA000, 0x34);
+        assertThat(memory.readByte(0xA000), is(0x34));
+
+        memory.writeByte(0x4000, 0x00);
+        assertThat(memory.readByte(0xA000), is(0x12));
+
+        memory.writeByte(0x0000, 0x00);
+        assertThat(memory.readByte(0xA000), is(0xFF));
+    }
+
+    @Test
+    public void testMbc3() {
+        MemoryController memory = memory(MemoryBankController.create(rom(0x13, 3, 128)));
+
+        memory.writeByte(0x2000, 0x7F);
+        assertThat(bankAt(memory, 0x4000), is(0x7F));
+
+        memory.writeByte(0x0000, 0x0A);
+        memory.writeByte(0x4000, 0x03);
+        memory.writeByte(0xBFFF, 0x56);
+        assertThat(memory.readByte(0xBFFF), is(0x56));
+
+        // Clock registers: halt, set the minutes and latch
+        memory.writeByte(0x4000, 0x0C);
+        memory.writeByte(0xA000, 0x40);
+        memory.writeByte(0x4000, 0x09);
+        memory.writeByte(0xA000, 25);
+        memory.writeByte(0x6000, 0x00);
+        memory.writeByte(0x6000, 0x01);
+        assertThat(memory.readByte(0xA000), is(25));
+
+        memory.writeByte(0x4000, 0x03);
+        assertThat(memory.readByte(0xBFFF), is(0x56));
+    }
+
+    @Test
+    public void testMbc5() {
+        MemoryController memory = memory(MemoryBankController.create(rom(0x1B, 4, 512)));
+
+        memory.writeByte(0x2000, 0x00);
+        assertThat(bankAt(memory, 0x4000), is(0));
+
+        memory.writeByte(0x2000, 0xFF);
+        memory.writeByte(0x3000, 0x01);
+        assertThat(bankAt(memory, 0x4000), is(0x1FF));
+
+        memory.writeByte(0x0000, 0x0A);
+        for (int bank = 0; bank < 16; bank++) {
+            memory.writeByte(0x4000, bank);
+            memory.writeByte(0xA000, bank);
+        }
+        memory.writeByte(0x4000, 0x0B);
+        assertThat(memory.readByte(0xA000), is(0x0B));
+    }
+
+}
@@ -35,6 +35,29 @@ public class MemoryBankTest {
 
     }
 
+    @Test
+    public void testByteAccess() {
+        MemoryBank memoryBank = new MemoryBank(0x4000, 0x4000, 4);
+
+        for (int bank = 0; bank < 4; bank++) {
+            memoryBank.setCurrentBank(bank);
+            memoryBank.writeByte(0x4000, bank);
+            memoryBank.writeByte(0x7FFF, 0xF0 | bank);
+        }
+
+        for (int bank = 3; bank >= 0; bank--) {
+            memoryBank.setCurrentBank(bank);
+            assertThat(memoryBank.readByte(0x4000), is(bank));
+            assertThat(memoryBank.readByte(0x7FFF), is(0xF0 | bank));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLastBankPlusOne() {
+        MemoryBank memoryBank = new MemoryBank(0, 0x10, 2);
+        memoryBank.setCurrentBank(2);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testNegativeNumberOfBanks() {
         new MemoryBank(0, 0x1000, -1);
@@ -46,5 +69,31 @@ public class MemoryBankTest {
         memoryBank.setCurrentBank(42);
     }
 
+    @Test
+    public void testReadIsWriteThroughView() {
+        MemoryBank memoryBank = new MemoryBank(0xA000, 0x2000, 2);
+        memoryBank.setCurrentBank(1);
+
+        Byte cell = memoryBank.read(new Short(0xA010));
+        cell.setValue(0x42);
+        memoryBank.setCurrentBank(0);
+        cell.inc();
+
+        assertThat(memoryBank.readByte(0xA010), is(0x00));
+        memoryBank.setCurrentBank(1);
+        assertThat(memoryBank.readByte(0xA010), is(0x43));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testAddressPastBank() {
+        MemoryBank memoryBank = new MemoryBank(0xA000, 0x2000, 2);
+        memoryBank.readByte(0xC000);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddressBeforeBank() {
+        MemoryBank memoryBank = new MemoryBank(0xA000, 0x2000, 2);
+        memoryBank.writeByte(0x9FFF, 0x01);
+    }
 
-}
\ No newline at end of file
+}
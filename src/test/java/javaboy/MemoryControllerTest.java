@@ -0,0 +1,91 @@
+package javaboy;
+
+import javaboy.graphics.GraphicsChip;
+import javaboy.memory.MemoryBankController;
+import javaboy.memory.MemoryController;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class MemoryControllerTest {
+
+    private final GraphicsChip graphicsChip = new GraphicsChip(null);
+    private MemoryController memory;
+
+    @Before
+    public void setUp() {
+        byte[] image = TestRoms.cartridge(0x00, 0, 2);
+        for (int i = 0; i < 0x20; i++) {
+            image[0x4000 + i] = (byte) 0xFF;
+        }
+        memory = new MemoryController(graphicsChip, null, MemoryBankController.create(TestRoms.image(image)));
+    }
+
+    @Test
+    public void testCopyBetweenArrays() {
+        for (int i = 0; i < 0x200; i++) {
+            memory.writeByte(0xC080 + i, i);
+        }
+
+        // Crosses page boundaries at different points in source and destination
+        memory.copy(0xC080, 0xD0F0, 0x200);
+
+        assertThat(memory.readByte(0xD0F0), is(0x00));
+        assertThat(memory.readByte(0xD0FF), is(0x0F));
+        assertThat(memory.readByte(0xD100), is(0x10));
+        assertThat(memory.readByte(0xD2EF), is(0xFF));
+        assertThat(memory.readByte(0xD2F0), is(0x00));
+    }
+
+    @Test
+    public void testOamDma() {
+        for (int i = 0; i < 0xA0; i++) {
+            memory.writeByte(0xC100 + i, i + 1);
+        }
+
+        memory.copy(0xC100, 0xFE00, 0xA0);
+
+        assertThat(graphicsChip.getOam()[0] & 0xFF, is(1));
+        assertThat(graphicsChip.getOam()[0x9F] & 0xFF, is(0xA0));
+        assertThat(memory.readByte(0xFE9F), is(0xA0));
+        assertThat(memory.readByte(0xFEA0), is(0x00));
+    }
+
+    @Test
+    public void testCopyToVideoRam() {
+        // Tile 0 in colour 3 throughout
+        memory.copy(0x4000, 0x8000, 0x10);
+
+        assertThat(memory.readByte(0x800F), is(0xFF));
+        assertThat(memory.readByte(0x8010), is(0x00));
+
+        graphicsChip.backgroundPalette.decodePalette(0xE4);
+        graphicsChip.spritesEnabled = false;
+        graphicsChip.winEnabled = false;
+        graphicsChip.notifyScanline(0);
+
+        assertThat(graphicsChip.getFrameBuffer()[0], is(0xFF000000));
+    }
+
+    @Test
+    public void testHighRam() {
+        memory.writeByte(0xFF80, 0x12);
+        memory.writeByte(0xFFFE, 0x34);
+
+        assertThat(memory.readByte(0xFF80), is(0x12));
+        assertThat(memory.readByte(0xFFFE), is(0x34));
+
+        for (int i = 0; i < 0x10; i++) {
+            memory.writeByte(0xC000 + i, 0xA0 + i);
+        }
+
+        // Copies into the IO page reach high RAM too
+        memory.copy(0xC000, 0xFF90, 0x10);
+        memory.copy(0xFF90, 0xC100, 0x10);
+
+        assertThat(memory.readByte(0xFF9F), is(0xAF));
+        assertThat(memory.readByte(0xC10F), is(0xAF));
+    }
+}
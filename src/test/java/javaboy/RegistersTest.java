@@ -0,0 +1,98 @@
+package javaboy;
+
+import javaboy.lang.Bit;
+import javaboy.memory.Memory;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class RegistersTest {
+
+    private final Registers registers = new Registers(new Memory(0, 0x10000));
+
+    @Test
+    public void pairTest() {
+        registers.bc(0x1234);
+        assertThat(registers.read(Registers.B), is(0x12));
+        assertThat(registers.read(Registers.C), is(0x34));
+
+        registers.hl(0xFFFF);
+        registers.hl(registers.hl() + 1);
+        assertThat(registers.hl(), is(0x0000));
+
+        registers.af(0xABCD);
+        assertThat(registers.a(), is(0xAB));
+        assertThat(registers.f(), is(0xC0));
+    }
+
+    @Test
+    public void viewTest() {
+        registers.de(0xBEEF);
+        assertThat(registers.d.intValue(), is(0xBE));
+        assertThat(registers.de.intValue(), is(0xBEEF));
+
+        registers.e.inc();
+        assertThat(registers.de(), is(0xBEF0));
+
+        registers.pc(0x0150);
+        registers.pc.inc();
+        assertThat(registers.pc(), is(0x0151));
+        assertThat(registers.pc.getUpperByte().intValue(), is(0x01));
+
+        registers.sp.setValue(0xFFFE);
+        assertThat(registers.sp(), is(0xFFFE));
+
+        registers.f.cf(Bit.ONE);
+        assertThat(registers.cf(), is(true));
+        assertThat(registers.carry(), is(1));
+        registers.f.setValue(0xFF);
+        assertThat(registers.f(), is(0xF0));
+    }
+
+    @Test
+    public void memoryOperandTest() {
+        registers.hl(0x0100);
+        registers.registerWrite(Registers.Register.MEM, 0x42);
+        assertThat(registers.registerRead(Registers.Register.MEM), is(0x42));
+
+        registers.write(Registers.A, 0x142);
+        assertThat(registers.registerRead(Registers.Register.A), is(0x42));
+    }
+
+    @Test
+    public void pendingFlagsTest() {
+        for (int left = 0; left < 0x100; left++) {
+            for (int right = 0; right < 0x100; right++) {
+                for (int carry = 0; carry < 2; carry++) {
+                    int sum = left + right + carry;
+                    int added = (((left & 0x0F) + (right & 0x0F) + carry) & 0x10) != 0 ? Registers.HALF_CARRY_FLAG : 0;
+                    added |= (sum & 0x100) != 0 ? Registers.CARRY_FLAG : 0;
+                    added |= (sum & 0xFF) == 0 ? Registers.ZERO_FLAG : 0;
+
+                    registers.addFlags(left, right, sum);
+                    assertThat(registers.zf(), is((added & Registers.ZERO_FLAG) != 0));
+                    assertThat(registers.cf(), is((added & Registers.CARRY_FLAG) != 0));
+                    assertThat(registers.f(), is(added));
+
+                    int difference = left - right - carry;
+                    int subtracted = Registers.SUBTRACT_FLAG;
+                    subtracted |= (((left & 0x0F) - (right & 0x0F) - carry) & 0x10) != 0 ? Registers.HALF_CARRY_FLAG : 0;
+                    subtracted |= (difference & 0x100) != 0 ? Registers.CARRY_FLAG : 0;
+                    subtracted |= (difference & 0xFF) == 0 ? Registers.ZERO_FLAG : 0;
+
+                    registers.subtractFlags(left, right, difference);
+                    assertThat(registers.carry(), is((subtracted & Registers.CARRY_FLAG) >> 4));
+                    assertThat(registers.af() & 0xFF, is(subtracted));
+                }
+            }
+        }
+
+        // Setting F drops the pending flags
+        registers.addFlags(0xFF, 0x01, 0x100);
+        registers.f(0);
+        assertThat(registers.zf(), is(false));
+        assertThat(registers.f.intValue(), is(0));
+    }
+
+}
@@ -0,0 +1,83 @@
+package javaboy;
+
+import javaboy.memory.MemoryBankController;
+import javaboy.rom.RomImage;
+
+/**
+ * ROM images for tests, with a program placed at the entry point, and CPUs reset to run them
+ */
+public class TestRoms {
+
+    /**
+     * Halts with every interrupt disabled, so nothing ever wakes the CPU
+     */
+    private static final int[] HALT_FOREVER = {
+            0xF3,           // DI
+            0xAF,           // XOR A
+            0xE0, 0x0F,     // IF = 0
+            0xE0, 0xFF,     // IE = 0
+            0x76            // HALT
+    };
+
+    private TestRoms() {
+    }
+
+    public static int[] haltForever() {
+        return HALT_FOREVER.clone();
+    }
+
+    /**
+     * The bytes of a cartridge of the given type, RAM size code and number of ROM banks, empty
+     * apart from those header fields
+     */
+    public static byte[] cartridge(int type, int ramSize, int banks) {
+        byte[] image = new byte[banks * MemoryBankController.ROM_BANK_SIZE];
+        image[0x0147] = (byte) type;
+        image[0x0149] = (byte) ramSize;
+        return image;
+    }
+
+    /**
+     * The bytes of an otherwise empty 32Kb ROM holding the program
+     */
+    public static byte[] bytes(int... program) {
+        return write(cartridge(0x00, 0, 2), program);
+    }
+
+    /**
+     * An otherwise empty 32Kb ROM holding the program
+     */
+    public static RomImage image(int... program) {
+        return new RomImage(bytes(program));
+    }
+
+    /**
+     * The given image with the program written into it
+     */
+    public static RomImage image(byte[] image, int... program) {
+        return new RomImage(write(image, program));
+    }
+
+    /**
+     * A CPU running the program from an otherwise empty 32Kb ROM
+     */
+    public static Cpu cpu(int... program) {
+        return cpu(bytes(program));
+    }
+
+    /**
+     * A CPU running the program from the given image, which it is written into
+     */
+    public static Cpu cpu(byte[] image, int... program) {
+        Cpu cpu = new Cpu(image(image, program));
+        cpu.reset();
+        return cpu;
+    }
+
+    private static byte[] write(byte[] image, int... program) {
+        for (int i = 0; i < program.length; i++) {
+            image[0x0100 + i] = (byte) program[i];
+        }
+        return image;
+    }
+}
@@ -0,0 +1,45 @@
+package javaboy.benchmark;
+
+import javaboy.JoypadController.Button;
+import javaboy.rom.loader.RomLoader;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class InputTraceTest {
+
+    @Test
+    public void testParse() {
+        InputTrace trace = InputTrace.parse(Arrays.asList(
+                "# Press start, then run right jumping",
+                "10 START",
+                "",
+                "12 -",
+                "20 right+A"));
+
+        assertThat(trace.keysAt(0), is(0));
+        assertThat(trace.keysAt(10), is(Button.START.getBitMask()));
+        assertThat(trace.keysAt(11), is(Button.START.getBitMask()));
+        assertThat(trace.keysAt(12), is(0));
+        assertThat(trace.keysAt(1000), is(Button.RIGHT.getBitMask() | Button.A.getBitMask()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownKey() {
+        InputTrace.parse(Arrays.asList("10 TURBO"));
+    }
+
+    @Test
+    public void testDeterministicRun() {
+        BenchmarkRunner.Result first = new BenchmarkRunner(RomLoader.loadRom("bgblogo.gb"), InputTrace.none()).run(20);
+        BenchmarkRunner.Result second = new BenchmarkRunner(RomLoader.loadRom("bgblogo.gb"), InputTrace.none()).run(20);
+
+        assertThat(first.getFrames(), is(20L));
+        assertThat(second.getInstructions(), is(first.getInstructions()));
+        assertThat(second.getFrameHash(), is(first.getFrameHash()));
+    }
+
+}
@@ -0,0 +1,203 @@
+package javaboy.graphics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class GraphicsChipTest {
+
+    private static final int WHITE = 0xFFFFFFFF;
+    private static final int LIGHT = 0xFFAAAAAA;
+    private static final int DARK = 0xFF555555;
+
+    private final GraphicsChip graphicsChip = new GraphicsChip(null);
+
+    @Before
+    public void setUp() {
+        graphicsChip.spritesEnabled = false;
+        graphicsChip.winEnabled = false;
+        graphicsChip.backgroundPalette.decodePalette(0xE4);
+
+        // Tile 1 has its top row in colour 1
+        graphicsChip.addressWrite(0x0010, (byte) 0xFF);
+
+        // Top left of the background map and of the window map
+        graphicsChip.addressWrite(0x1800, (byte) 1);
+        graphicsChip.addressWrite(0x1C00, (byte) 1);
+    }
+
+    private int pixel(int x, int y) {
+        return graphicsChip.getFrameBuffer()[y * GraphicsChip.WIDTH + x];
+    }
+
+    @Test
+    public void testBackground() {
+        graphicsChip.notifyScanline(0);
+        graphicsChip.notifyScanline(1);
+
+        assertThat(pixel(0, 0), is(LIGHT));
+        assertThat(pixel(7, 0), is(LIGHT));
+        assertThat(pixel(8, 0), is(WHITE));
+        assertThat(pixel(0, 1), is(WHITE));
+    }
+
+    @Test
+    public void testScrollBetweenLines() {
+        graphicsChip.scrollX = 4;
+        graphicsChip.notifyScanline(0);
+
+        // A change of scroll position part way down the screen applies from the next line
+        graphicsChip.scrollX = 0;
+        graphicsChip.scrollY = 0xFF;
+        graphicsChip.notifyScanline(1);
+
+        assertThat(pixel(3, 0), is(LIGHT));
+        assertThat(pixel(4, 0), is(WHITE));
+        assertThat(pixel(7, 1), is(LIGHT));
+        assertThat(pixel(8, 1), is(WHITE));
+    }
+
+    @Test
+    public void testTileDecode() {
+        TileCache tiles = new TileCache();
+        byte[] videoRam = new byte[0x1800];
+
+        // Row 3 of tile 2
+        videoRam[0x0026] = (byte) 0xA0;
+        videoRam[0x0027] = (byte) 0xC1;
+        tiles.update(videoRam, 0x0027);
+
+        int offset = TileCache.offset(2, 3);
+        assertThat(tiles.colours()[offset], is((byte) 3));
+        assertThat(tiles.colours()[offset + 1], is((byte) 2));
+        assertThat(tiles.colours()[offset + 2], is((byte) 1));
+        assertThat(tiles.colours()[offset + 3], is((byte) 0));
+        assertThat(tiles.colours()[offset + 7], is((byte) 2));
+    }
+
+    @Test
+    public void testPaletteChange() {
+        graphicsChip.notifyScanline(0);
+        assertThat(pixel(0, 0), is(LIGHT));
+
+        // Colour 1 becomes dark grey without anything being redecoded
+        graphicsChip.backgroundPalette.decodePalette(0xE8);
+        graphicsChip.notifyScanline(0);
+        assertThat(pixel(0, 0), is(0xFF555555));
+        assertThat(pixel(8, 0), is(WHITE));
+    }
+
+    private void drawFrame() {
+        for (int line = 0; line < GraphicsChip.HEIGHT; line++) {
+            graphicsChip.notifyScanline(line);
+        }
+    }
+
+    @Test
+    public void testDirtyRegion() {
+        List<String> regions = new ArrayList<>();
+        Display display = new Display() {
+            @Override
+            public void frameReady(int[] frameBuffer) {
+            }
+
+            @Override
+            public void frameReady(int[] frameBuffer, DirtyRegion dirtyRegion) {
+                regions.add(dirtyRegion.toString());
+            }
+        };
+
+        drawFrame();
+        graphicsChip.finishFrame(display);
+
+        // Every other frame is skipped
+        graphicsChip.finishFrame(display);
+
+        drawFrame();
+        graphicsChip.finishFrame(display);
+        graphicsChip.finishFrame(display);
+
+        // Second pixel of the second row of tile 1
+        graphicsChip.addressWrite(0x0012, (byte) 0x40);
+        drawFrame();
+        assertThat(graphicsChip.getDirtyRegion().isLineDirty(0), is(false));
+        assertThat(graphicsChip.getDirtyRegion().isLineDirty(1), is(true));
+        assertThat(graphicsChip.getDirtyRegion().getLineLeft(1), is(1));
+        assertThat(graphicsChip.getDirtyRegion().getLineRight(1), is(2));
+        graphicsChip.finishFrame(display);
+
+        assertThat(regions, is(Arrays.asList("[0, 0 160x144]", "[]", "[1, 1 1x1]")));
+    }
+
+    @Test
+    public void testWindow() {
+        graphicsChip.winEnabled = true;
+        graphicsChip.hiWindowTileMapAddress = true;
+        graphicsChip.windowX = 7 + 80;
+        graphicsChip.windowY = 1;
+
+        graphicsChip.notifyScanline(0);
+        graphicsChip.notifyScanline(1);
+
+        assertThat(pixel(80, 0), is(WHITE));
+        assertThat(pixel(0, 1), is(WHITE));
+        assertThat(pixel(80, 1), is(LIGHT));
+        assertThat(pixel(87, 1), is(LIGHT));
+        assertThat(pixel(88, 1), is(WHITE));
+    }
+
+    private void setSprite(int sprite, int x, int y, int tile) {
+        byte[] oam = graphicsChip.getOam();
+        oam[sprite * 4] = (byte) (y + 16);
+        oam[sprite * 4 + 1] = (byte) (x + 8);
+        oam[sprite * 4 + 2] = (byte) tile;
+        oam[sprite * 4 + 3] = 0;
+    }
+
+    @Test
+    public void testSpritesPerLine() {
+        graphicsChip.spritesEnabled = true;
+        graphicsChip.obj1Palette.decodePalette(0xE4);
+
+        for (int i = 0; i < 11; i++) {
+            setSprite(i, 16 + i * 10, 0, 1);
+        }
+        graphicsChip.notifyScanline(0);
+
+        assertThat(pixel(16, 0), is(LIGHT));
+        assertThat(pixel(106, 0), is(LIGHT));
+        assertThat(pixel(116, 0), is(WHITE));
+    }
+
+    @Test
+    public void testSpritePriority() {
+        graphicsChip.spritesEnabled = true;
+        graphicsChip.obj1Palette.decodePalette(0xE4);
+
+        // Tile 2 has its top row in colour 2
+        graphicsChip.addressWrite(0x0021, (byte) 0xFF);
+
+        // The sprite further left wins, even though it comes later in OAM
+        setSprite(0, 20, 0, 2);
+        setSprite(1, 16, 0, 1);
+
+        // With equal X, the sprite earlier in OAM wins
+        setSprite(2, 40, 0, 2);
+        setSprite(3, 40, 0, 1);
+
+        graphicsChip.notifyScanline(0);
+
+        assertThat(pixel(19, 0), is(LIGHT));
+        assertThat(pixel(23, 0), is(LIGHT));
+        assertThat(pixel(24, 0), is(DARK));
+        assertThat(pixel(40, 0), is(DARK));
+        assertThat(pixel(47, 0), is(DARK));
+    }
+
+}
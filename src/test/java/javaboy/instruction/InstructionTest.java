@@ -0,0 +1,36 @@
+package javaboy.instruction;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class InstructionTest {
+
+    @Test
+    public void baseOpcodeTableTest() {
+        for (int i = 0; i < 0x100; i++) {
+            assertThat(BaseOpcode.from(i).intValue(), is(i));
+            assertThat(Instruction.from(i, false), is((Opcode) BaseOpcode.from(i)));
+        }
+    }
+
+    @Test
+    public void extendedOpcodeTableTest() {
+        for (int i = 0; i < 0x100; i++) {
+            assertThat(ExtendedOpcode.from(i).intValue(), is(i));
+            assertThat(Instruction.from(i, true), is((Opcode) ExtendedOpcode.from(i)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void baseOpcodeOutOfRange() {
+        BaseOpcode.from(0x100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void extendedOpcodeOutOfRange() {
+        ExtendedOpcode.from(-1);
+    }
+
+}
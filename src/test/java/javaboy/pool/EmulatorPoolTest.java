@@ -0,0 +1,116 @@
+package javaboy.pool;
+
+import javaboy.TestRoms;
+import javaboy.rom.RomImage;
+import javaboy.rom.loader.RomLoader;
+import javaboy.timing.FramePacer;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EmulatorPoolTest {
+
+    @Test(timeout = 30000)
+    public void testRunFrames() {
+        RomImage rom = RomLoader.loadRom("bgblogo.gb");
+
+        try (EmulatorPool pool = new EmulatorPool(2)) {
+            for (int i = 0; i < 5; i++) {
+                pool.add(rom);
+            }
+
+            pool.runFrames(10).join();
+            pool.runFrames(5).join();
+
+            assertThat(pool.getFrameCount(), is(75L));
+
+            int[] expected = pool.getInstances().get(0).getCpu().getFrameBuffer();
+            for (EmulatorPool.Instance instance : pool.getInstances()) {
+                assertThat(instance.isRunning(), is(false));
+                assertThat(instance.getCpu().getFrameCount(), is(15L));
+                assertThat(Arrays.equals(instance.getCpu().getFrameBuffer(), expected), is(true));
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testThreadPerEmulator() {
+        RomImage rom = RomLoader.loadRom("bgblogo.gb");
+
+        try (EmulatorPool pool = EmulatorPool.threadPerEmulator()) {
+            EmulatorPool.Instance paced = pool.add(rom, FramePacer.speed(10));
+            EmulatorPool.Instance unlimited = pool.add(rom);
+
+            long start = System.nanoTime();
+            pool.runFrames(31).join();
+            long elapsed = System.nanoTime() - start;
+
+            // 30 frames at 10x speed take 50ms
+            assertTrue("Took " + elapsed + "ns", elapsed >= 30 * 1674270L);
+            assertThat(pool.getFrameCount(), is(62L));
+            assertThat(paced.getCpu().getFrameCount(), is(31L));
+            assertThat(Arrays.equals(paced.getCpu().getFrameBuffer(), unlimited.getCpu().getFrameBuffer()), is(true));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testHaltedEmulatorDoesNotHoldThread() {
+        RomImage rom = RomLoader.loadRom("bgblogo.gb");
+
+        try (EmulatorPool pool = new EmulatorPool(1)) {
+            EmulatorPool.Instance halted = pool.add(TestRoms.image(TestRoms.haltForever()));
+            for (int i = 0; i < 3; i++) {
+                pool.add(rom);
+            }
+
+            pool.runFrames(10).join();
+
+            assertThat(pool.getFrameCount(), is(40L));
+            for (EmulatorPool.Instance instance : pool.getInstances()) {
+                assertThat(instance.getCpu().getFrameCount(), is(10L));
+            }
+            assertThat(halted.isRunning(), is(false));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testCloseStopsRuns() {
+        RomImage rom = RomLoader.loadRom("bgblogo.gb");
+        EmulatorPool pool = EmulatorPool.threadPerEmulator();
+        EmulatorPool.Instance instance = pool.add(rom, new FramePacer() {
+            @Override
+            public void frameCompleted() {
+                pool.close();
+            }
+
+            @Override
+            public void reset() {
+            }
+        });
+
+        CompletableFuture<Void> run = pool.runFrames(Integer.MAX_VALUE);
+        try {
+            run.join();
+            fail("Run completed after the pool was closed");
+        } catch (CompletionException exception) {
+            assertTrue(exception.getCause() instanceof RejectedExecutionException);
+        }
+
+        assertThat(instance.isRunning(), is(false));
+        assertThat(instance.getCpu().getFrameCount(), is(1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoThreads() {
+        new EmulatorPool(0);
+    }
+
+}
@@ -0,0 +1,59 @@
+package javaboy.rom;
+
+import javaboy.Cpu;
+import javaboy.TestRoms;
+import javaboy.rom.loader.RomLoader;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class RomLoaderTest {
+
+    @Test
+    public void testHeader() {
+        byte[] image = TestRoms.cartridge(0x13, 0x03, 2);
+        System.arraycopy("POKEMON RED".getBytes(), 0, image, 0x0134, 11);
+        image[0x0148] = 0x05;
+
+        CartridgeHeader header = CartridgeHeader.parse(image);
+        assertThat(header.getTitle(), is("POKEMON RED"));
+        assertThat(header.getType(), is(0x13));
+        assertThat(header.getRomBanks(), is(64));
+        assertThat(header.getRamBanks(), is(4));
+
+        RomImage rom = new RomImage(header, image);
+        assertThat(rom.getData().length, is(64 * 0x4000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedImage() {
+        CartridgeHeader.parse(new byte[0x100]);
+    }
+
+    @Test
+    public void testSharedImage() {
+        RomImage first = RomLoader.loadRom("bgblogo.gb");
+        RomImage second = RomLoader.loadRom("./bgblogo.gb");
+
+        assertThat(second, sameInstance(first));
+        assertThat(first.getHeader().getTitle(), is("BGBWELCOME"));
+        assertThat(first.getHeader().getRomBanks(), is(2));
+        assertThat(first.getData().length, is(0x8000));
+    }
+
+    @Test
+    public void testCpuHoldsSharedImage() {
+        Cpu cpu = new Cpu(RomLoader.loadRom("bgblogo.gb"));
+
+        // Keeps the cached image reachable for as long as the CPU uses its data
+        assertThat(cpu.getRom(), sameInstance(RomLoader.loadRom("bgblogo.gb")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingFile() {
+        RomLoader.loadRom("missing.gb");
+    }
+
+}
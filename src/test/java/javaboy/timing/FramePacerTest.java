@@ -0,0 +1,48 @@
+package javaboy.timing;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class FramePacerTest {
+
+    @Test
+    public void testFrameLength() {
+        assertThat(((DeadlinePacer) FramePacer.realTime()).getFrameNanos(), is(16742706L));
+        assertThat(((DeadlinePacer) FramePacer.speed(4)).getFrameNanos(), is(4185676L));
+    }
+
+    @Test
+    public void testPacing() {
+        FramePacer pacer = FramePacer.speed(10);
+
+        long start = System.nanoTime();
+        for (int frame = 0; frame <= 30; frame++) {
+            pacer.frameCompleted();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // 30 frames at 10x speed take 50ms
+        assertTrue("Took " + elapsed + "ns", elapsed >= 30 * 1674270L);
+    }
+
+    @Test
+    public void testUnlimited() {
+        FramePacer pacer = FramePacer.unlimited();
+
+        long start = System.nanoTime();
+        for (int frame = 0; frame < 100_000; frame++) {
+            pacer.frameCompleted();
+        }
+
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroSpeed() {
+        FramePacer.speed(0);
+    }
+
+}
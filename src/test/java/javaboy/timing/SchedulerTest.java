@@ -0,0 +1,40 @@
+package javaboy.timing;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class SchedulerTest {
+
+    @Test
+    public void testEarliestEvent() {
+        Scheduler scheduler = new Scheduler(3);
+        assertThat(scheduler.nextDeadline(), is(Scheduler.NEVER));
+        assertThat(scheduler.due(Long.MAX_VALUE - 1), is(-1));
+
+        scheduler.schedule(0, 456);
+        scheduler.schedule(1, 100);
+        scheduler.schedule(2, 1024);
+
+        assertThat(scheduler.nextDeadline(), is(100L));
+        assertThat(scheduler.due(99), is(-1));
+        assertThat(scheduler.due(100), is(1));
+
+        scheduler.schedule(1, 500);
+        assertThat(scheduler.due(500), is(0));
+
+        scheduler.cancel(0);
+        assertThat(scheduler.nextDeadline(), is(500L));
+        assertThat(scheduler.deadline(0), is(Scheduler.NEVER));
+
+        scheduler.clear();
+        assertThat(scheduler.nextDeadline(), is(Scheduler.NEVER));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoEvents() {
+        new Scheduler(0);
+    }
+
+}